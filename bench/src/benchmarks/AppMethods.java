@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * The application classes live in the default package, which a named package cannot
+ * import, so the benchmarks reach them through method handles. Keep the handles in
+ * static final fields: the JIT then treats them as constants and inlines the target,
+ * and the measurement is the method itself rather than the lookup.
+ */
+final class AppMethods {
+
+    private AppMethods() {
+    }
+
+    static Class<?> appClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Application class " + name + " is not on the classpath", e);
+        }
+    }
+
+    // Private and package-private methods included
+    static MethodHandle staticMethod(String className, String methodName, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(appClass(className), MethodHandles.lookup());
+            return lookup.findStatic(lookup.lookupClass(), methodName, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access " + className + "." + methodName, e);
+        }
+    }
+
+    static Object newInstance(String className, Class<?>[] parameterTypes, Object... args) {
+        try {
+            Constructor<?> constructor = appClass(className).getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return constructor.newInstance(args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + className, e);
+        }
+    }
+
+    // For setting up state only, far too slow to call inside a benchmark method
+    static Object invoke(Object target, String methodName, Class<?>[] parameterTypes, Object... args) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(methodName, parameterTypes);
+            method.setAccessible(true);
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot call " + methodName + " on " + target.getClass().getName(), e);
+        }
+    }
+
+    // The receiver is typed as Object, since the benchmarks cannot name the class
+    static MethodHandle virtualMethod(String className, String methodName, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(appClass(className), MethodHandles.lookup());
+            MethodHandle handle = lookup.findVirtual(lookup.lookupClass(), methodName,
+                MethodType.methodType(returnType, parameterTypes));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access " + className + "." + methodName, e);
+        }
+    }
+}
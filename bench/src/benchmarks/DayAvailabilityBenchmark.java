@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The two available-days checks: isDayAvailable from the schedule view, and the
+ * quote-stripping, upper-casing parse validateTicketSelection runs before every booking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DayAvailabilityBenchmark {
+
+    private static final MethodHandle IS_DAY_AVAILABLE = AppMethods.staticMethod("FinalGUI",
+        "isDayAvailable", boolean.class, String.class, String.class);
+    private static final MethodHandle IS_SHOW_DAY = AppMethods.staticMethod("FinalGUI",
+        "isShowDay", boolean.class, String.class, String.class);
+
+    // As stored in musicals.available_days
+    @Param({"Monday,Wednesday,Friday,Saturday", "Monday,Tuesday,Wednesday,Thursday,Friday,Saturday,Sunday"})
+    public String availableDays;
+
+    // A miss for the first list and the last entry of the second, so both scan every day
+    @Param({"SUNDAY"})
+    public String day;
+
+    @Benchmark
+    public boolean isDayAvailable() throws Throwable {
+        return (boolean) IS_DAY_AVAILABLE.invokeExact(availableDays, day);
+    }
+
+    @Benchmark
+    public boolean validateTicketSelectionDays() throws Throwable {
+        // validateTicketSelection strips the quotes on every call before parsing
+        return (boolean) IS_SHOW_DAY.invokeExact(availableDays.replace("\"", ""), day);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-seat price calculation from BookingService and receipt formatting from FinalGUI.
+ * The receipt is formatted with fixed timestamps and never written to receipt.txt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    private static final MethodHandle CALCULATE_PRICE = AppMethods.staticMethod("BookingService",
+        "calculatePrice", double.class, double.class, String.class, int.class);
+    private static final MethodHandle FORMAT_RECEIPT = AppMethods.staticMethod("FinalGUI",
+        "formatReceipt", String.class, String.class, LocalDateTime.class, String.class, double.class, LocalDateTime.class);
+
+    @Param({"Adult", "Senior", "Student"})
+    public String ticketType;
+
+    @Param({"1", "8"})
+    public int seats;
+
+    private double basePrice;
+    private String musicalName;
+    private LocalDateTime showDateTime;
+    private LocalDateTime issuedAt;
+    private String ticketDetails;
+    private double totalPrice;
+
+    @Setup
+    public void setUp() throws Throwable {
+        basePrice = 45.50;
+        musicalName = "The Phantom of the Opera";
+        showDateTime = LocalDateTime.of(2025, 3, 14, 19, 30);
+        issuedAt = LocalDateTime.of(2025, 3, 1, 12, 0, 5);
+
+        // Same shape as the details BookingService builds, one line per seat
+        StringBuilder details = new StringBuilder();
+        totalPrice = 0;
+        for (int i = 1; i <= seats; i++) {
+            double price = (double) CALCULATE_PRICE.invokeExact(basePrice, ticketType, 1);
+            details.append(String.format("%s ticket - Seat %s: £%.2f\n", ticketType, "Stalls" + i, price));
+            totalPrice += price;
+        }
+        ticketDetails = details.toString();
+    }
+
+    @Benchmark
+    public double calculatePrice() throws Throwable {
+        return (double) CALCULATE_PRICE.invokeExact(basePrice, ticketType, seats);
+    }
+
+    @Benchmark
+    public String formatReceipt() throws Throwable {
+        return (String) FORMAT_RECEIPT.invokeExact(musicalName, showDateTime, ticketDetails, totalPrice, issuedAt);
+    }
+}
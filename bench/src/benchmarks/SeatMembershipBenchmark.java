@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * "Is this seat booked?" for every seat of a section, as done when the seat map is built.
+ * bookedList is the old SeatSelectionPanel.createSectionPanel pattern, a contains() on the
+ * list from getBookedSeats per seat; sectionSeats is the SeatInventory bitset that
+ * replaced it. The set is in between, for reference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatMembershipBenchmark {
+
+    private static final String SECTION = "Stalls";
+    private static final MethodHandle IS_FREE = AppMethods.virtualMethod("SeatInventory$SectionSeats",
+        "isFree", boolean.class, int.class);
+
+    @Param({"100", "1000", "10000"})
+    public int capacity;
+
+    @Param({"0.5"})
+    public double bookedFraction;
+
+    private List<String> bookedList;
+    private Set<String> bookedSet;
+    private Object sectionSeats;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bookedList = new ArrayList<>();
+        long[] booked = new long[(capacity + 63) >>> 6];
+        for (int i = 1; i <= capacity; i++) {
+            if (random.nextDouble() < bookedFraction) {
+                bookedList.add(SECTION + i);
+                booked[(i - 1) >>> 6] |= 1L << (i - 1);
+            }
+        }
+        bookedSet = new HashSet<>(bookedList);
+        // Loaded the way a reload does it
+        sectionSeats = AppMethods.newInstance("SeatInventory$SectionSeats",
+            new Class<?>[] {String.class, int.class}, SECTION, capacity);
+        AppMethods.invoke(sectionSeats, "applyBooked", new Class<?>[] {long[].class}, (Object) booked);
+    }
+
+    @Benchmark
+    public int bookedList() {
+        int free = 0;
+        for (int i = 1; i <= capacity; i++) {
+            if (!bookedList.contains(SECTION + i)) free++;
+        }
+        return free;
+    }
+
+    @Benchmark
+    public int bookedSet() {
+        int free = 0;
+        for (int i = 1; i <= capacity; i++) {
+            if (!bookedSet.contains(SECTION + i)) free++;
+        }
+        return free;
+    }
+
+    @Benchmark
+    public int sectionSeats() throws Throwable {
+        int free = 0;
+        for (int i = 1; i <= capacity; i++) {
+            if ((boolean) IS_FREE.invokeExact(sectionSeats, i)) free++;
+        }
+        return free;
+    }
+}
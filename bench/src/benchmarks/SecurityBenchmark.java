@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SecurityUtils as called on every login, registration and free-text search.
+ * hashPassword pays for a MessageDigest lookup per call, so its allocation rate is the
+ * number to watch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private static final MethodHandle HASH_PASSWORD = AppMethods.staticMethod("SecurityUtils",
+        "hashPassword", String.class, String.class);
+    private static final MethodHandle SANITIZE_INPUT = AppMethods.staticMethod("SecurityUtils",
+        "sanitizeInput", String.class, String.class);
+
+    // Separate states so each benchmark only runs over its own parameters
+    @State(Scope.Benchmark)
+    public static class Passwords {
+        @Param({"hunter2", "correct horse battery staple 2025!"})
+        public String password;
+    }
+
+    @State(Scope.Benchmark)
+    public static class UserInput {
+        @Param({"Les Misérables, Drama", "'; DROP TABLE musicals; -- <script>alert(1)</script>"})
+        public String text;
+    }
+
+    @Benchmark
+    public String hashPassword(Passwords state) throws Throwable {
+        return (String) HASH_PASSWORD.invokeExact(state.password);
+    }
+
+    @Benchmark
+    public String sanitizeInput(UserInput state) throws Throwable {
+        return (String) SANITIZE_INPUT.invokeExact(state.text);
+    }
+}
@@ -84,7 +84,10 @@ CREATE TABLE receipts (
     receipt_text TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (customer_id) REFERENCES customers(id),
-    FOREIGN KEY (musical_id) REFERENCES musicals(id)
+    FOREIGN KEY (musical_id) REFERENCES musicals(id),
+    -- Booking history pages through receipts by (created_at, id), see BookingHistoryModel
+    KEY idx_receipts_created (created_at, id),
+    KEY idx_receipts_show_created (show_date, created_at, id)
 );
 
 -- Income data table for financial tracking
@@ -94,7 +97,8 @@ CREATE TABLE income_data (
     transaction_date DATE NOT NULL,
     category VARCHAR(50),
     description VARCHAR(255),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_income_created (created_at)
 );
 
 -- Seat booking table
@@ -110,7 +114,30 @@ CREATE TABLE booked_seats (
     FOREIGN KEY (musical_id) REFERENCES musicals(id),
     FOREIGN KEY (venue_id) REFERENCES venues(id),
     FOREIGN KEY (section_id) REFERENCES sections(id),
-    UNIQUE KEY unique_seat (musical_id, venue_id, section_id, seat_number, show_date, show_time)
+    UNIQUE KEY unique_seat (musical_id, venue_id, section_id, seat_number, show_date, show_time),
+    KEY idx_booking (booking_id)
+);
+
+-- Daily income per category, kept up to date by each booking (see IncomeRollups).
+-- Bookings spread over the slots so they do not all wait on one row; readers sum them.
+CREATE TABLE daily_income (
+    day DATE NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    slot TINYINT NOT NULL,
+    amount DECIMAL(14,2) NOT NULL,
+    transactions INT NOT NULL,
+    PRIMARY KEY (day, category, slot)
+);
+
+-- Daily revenue and bookings per musical, kept up to date by each booking
+CREATE TABLE daily_musical_sales (
+    day DATE NOT NULL,
+    musical_id INT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    bookings INT NOT NULL,
+    tickets INT NOT NULL,
+    PRIMARY KEY (day, musical_id),
+    FOREIGN KEY (musical_id) REFERENCES musicals(id)
 );
 
 
@@ -216,3 +243,13 @@ Adult ticket - Seat B5: £350.00
 
 Total Price: £350.00
 --------------------------------------');
+
+-- Rollups of the demo data above, the same queries IncomeRollups runs to rebuild them
+INSERT INTO daily_income (day, category, slot, amount, transactions)
+SELECT DATE(created_at), COALESCE(category, ''), 0, SUM(amount), COUNT(*)
+FROM income_data GROUP BY DATE(created_at), COALESCE(category, '');
+
+INSERT INTO daily_musical_sales (day, musical_id, revenue, bookings, tickets)
+SELECT DATE(r.created_at), r.musical_id, SUM(r.total_price), COUNT(*),
+       SUM((SELECT COUNT(*) FROM booked_seats bs WHERE bs.booking_id = r.id))
+FROM receipts r GROUP BY DATE(r.created_at), r.musical_id;
@@ -4,13 +4,33 @@ import org.jfree.chart.*;
 import org.jfree.chart.plot.*;
 import org.jfree.data.time.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class AdminDashboard extends JPanel {
+    private static final int AUTO_REFRESH_MILLIS = 5000;
+
     private final MusicalDataHandler dataHandler;
     private JFreeChart incomeChart;
     private ChartPanel chartPanel;
+    // Updated in place, so refreshes never swap the dataset under the chart
+    private final TimeSeries incomeSeries = new TimeSeries("Income");
+    // What the chart and income total already include; null until the first full load
+    private IncomeWatermark incomeWatermark;
+    private double totalIncome;
     private final String userPermissions;
     private JLabel welcomeLabel;
+    // Stat card value labels by card title, filled in once the data has loaded
+    private final Map<String, JLabel> statValueLabels = new HashMap<>();
+    private final AsyncDataAccess.Loader loader = new AsyncDataAccess.Loader();
+    private JCheckBox autoRefreshBox;
+    // Ticks that come while a refresh is still running are dropped, so a slow database
+    // never has more than one dashboard query queued
+    private final Timer autoRefreshTimer = new Timer(AUTO_REFRESH_MILLIS, e -> {
+        if (isShowing() && !loader.isLoading()) refreshData();
+    });
 
     
     public AdminDashboard(MusicalDataHandler dataHandler, String permissions) {
@@ -21,6 +41,22 @@ public class AdminDashboard extends JPanel {
         // Dashboard and Welcome message components
         createWelcomePanel();
         createDashboard();
+        loadDashboardData();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (autoRefreshBox != null && autoRefreshBox.isSelected()) {
+            autoRefreshTimer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        autoRefreshTimer.stop();
+        loader.cancel();
+        super.removeNotify();
     }
     
     private void createWelcomePanel() {
@@ -74,6 +110,16 @@ public class AdminDashboard extends JPanel {
             JButton refreshBtn = new JButton("Refresh Data");
             refreshBtn.addActionListener(e -> refreshData());
             panel.add(refreshBtn);
+
+            autoRefreshBox = new JCheckBox("Auto Refresh");
+            autoRefreshBox.addActionListener(e -> {
+                if (autoRefreshBox.isSelected()) {
+                    autoRefreshTimer.start();
+                } else {
+                    autoRefreshTimer.stop();
+                }
+            });
+            panel.add(autoRefreshBox);
         }
         
         // Only show export button if user has Generate Reports permission
@@ -92,17 +138,17 @@ public class AdminDashboard extends JPanel {
         
         // Show Total Income Card only if user has Generate Reports permission
         if (userPermissions.contains("Generate Reports")) {
-            panel.add(createStatCard("Total Income", getTotalIncome(), "£"));
+            panel.add(createStatCard("Total Income", "...", ""));
         }
         
         // Show Total Bookings Card only if user has View Bookings permission
         if (userPermissions.contains("View Bookings")) {
-            panel.add(createStatCard("Total Bookings", getTotalBookings(), ""));
+            panel.add(createStatCard("Total Bookings", "...", ""));
         }
         
         // Show Available Shows Card only if user has Manage Musicals permission
         if (userPermissions.contains("Manage Musicals")) {
-            panel.add(createStatCard("Available Shows", getAvailableShows(), ""));
+            panel.add(createStatCard("Available Shows", "...", ""));
         }
         
         return panel;
@@ -123,12 +169,14 @@ public class AdminDashboard extends JPanel {
         card.add(titleLabel);
         card.add(Box.createVerticalStrut(5));
         card.add(valueLabel);
+        statValueLabels.put(title, valueLabel);
         
         return card;
     }
     
     private ChartPanel createIncomeChart() {
-        TimeSeriesCollection dataset = createIncomeDataset();
+        // Starts empty, loadDashboardData() fills it in
+        TimeSeriesCollection dataset = new TimeSeriesCollection(incomeSeries);
         
         incomeChart = ChartFactory.createTimeSeriesChart(
             "Monthly Income",
@@ -151,86 +199,172 @@ public class AdminDashboard extends JPanel {
         return chartPanel;
     }
     
-    private TimeSeriesCollection createIncomeDataset() {
-        TimeSeriesCollection dataset = new TimeSeriesCollection();
-        TimeSeries series = new TimeSeries("Income");
-        
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
-            String query = "SELECT DATE(created_at) as date, SUM(amount) as total " +
-                          "FROM income_data GROUP BY DATE(created_at) " +
-                          "ORDER BY date";
+    // The full load reads the daily rollups (see IncomeRollups), never the raw tables
+    @SuppressWarnings("try")
+    private Map<LocalDate, Double> getIncomeByDay(Connection conn) throws SQLException {
+        Map<LocalDate, Double> incomeByDay = new TreeMap<>();
+        try (QueryMetrics.Timer timer = QueryMetrics.time("dashboardIncomeByDay")) {
+            String query = "SELECT day, SUM(amount) as total " +
+                          "FROM daily_income GROUP BY day " +
+                          "ORDER BY day";
             
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
             
             while (rs.next()) {
-                series.add(
-                    new Day(rs.getDate("date")),
-                    rs.getDouble("total")
-                );
+                incomeByDay.put(rs.getDate("day").toLocalDate(), rs.getDouble("total"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            QueryMetrics.recordError("dashboardIncomeByDay");
+            throw e;
         }
-        
-        dataset.addSeries(series);
-        return dataset;
+        return incomeByDay;
     }
-    
-    private String getTotalIncome() {
-        try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
-            String query = "SELECT SUM(amount) as total FROM income_data";
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            
-            if (rs.next()) {
-                return String.format("%.2f", rs.getDouble("total"));
-            }
+
+    // Income committed since the chart was last updated, straight from income_data by id
+    @SuppressWarnings("try")
+    private IncomeWatermark.Delta getNewIncome(Connection conn, IncomeWatermark watermark) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("dashboardNewIncome")) {
+            return watermark.read(conn);
         } catch (SQLException e) {
-            e.printStackTrace();
+            QueryMetrics.recordError("dashboardNewIncome");
+            throw e;
         }
-        return "0.00";
     }
     
-    private String getTotalBookings() {
-        try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
-            String query = "SELECT COUNT(*) as total FROM receipts";
+    @SuppressWarnings("try")
+    private String getTotalBookings(Connection conn) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("dashboardTotalBookings")) {
+            String query = "SELECT SUM(bookings) as total FROM daily_musical_sales";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
             
             if (rs.next()) {
-                return String.valueOf(rs.getInt("total"));
+                return String.valueOf(rs.getLong("total"));
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("dashboardTotalBookings");
             e.printStackTrace();
         }
         return "0";
     }
     
+    // Counted from the catalog cache, which the booking path keeps current
     private String getAvailableShows() {
-        try (Connection conn = DriverManager.getConnection(
-                MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
-            String query = "SELECT COUNT(*) as total FROM musicals WHERE available_tickets > 0";
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            
-            if (rs.next()) {
-                return String.valueOf(rs.getInt("total"));
+        int available = 0;
+        for (MusicalDataHandler.Musical musical : dataHandler.getCatalogSnapshot().getMusicals()) {
+            if (musical.getAvailableTickets() > 0) {
+                available++;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        return "0";
+        return String.valueOf(available);
     }
     
+    /**
+     * Runs the queries in the background and fills the cards and chart in on the EDT.
+     * Without a watermark this is a full load from the rollups; after that only income
+     * added since the last refresh is read and merged into the chart.
+     */
+    private void loadDashboardData() {
+        boolean showIncome = userPermissions.contains("Generate Reports");
+        boolean showBookings = userPermissions.contains("View Bookings");
+        boolean showShows = userPermissions.contains("Manage Musicals");
+        if (!showIncome && !showBookings && !showShows) {
+            return;
+        }
+
+        IncomeWatermark watermark = incomeWatermark;
+        if (showIncome && watermark == null) {
+            incomeChart.setTitle("Monthly Income (loading...)");
+        }
+        loader.load(() -> {
+            DashboardData data = new DashboardData();
+            if (showIncome || showBookings) {
+                // One connection for all the dashboard queries
+                try (Connection conn = MusicalDataHandler.getConnection()) {
+                    if (showIncome && watermark == null) {
+                        // One snapshot, so the watermark covers exactly what the rollups hold
+                        conn.setAutoCommit(false);
+                        try {
+                            data.watermark = IncomeWatermark.start(conn);
+                            data.incomeByDay = getIncomeByDay(conn);
+                            conn.commit();
+                        } finally {
+                            conn.setAutoCommit(true);
+                        }
+                    } else if (showIncome) {
+                        data.newIncome = getNewIncome(conn, watermark);
+                    }
+                    if (showBookings) {
+                        data.totalBookings = getTotalBookings(conn);
+                    }
+                }
+            }
+            if (showShows) {
+                data.availableShows = getAvailableShows();
+            }
+            return data;
+        }, data -> {
+            // A newer full load may have replaced the watermark this was read against
+            if (watermark == incomeWatermark) {
+                if (data.incomeByDay != null) {
+                    showIncome(data.incomeByDay, data.watermark);
+                } else if (data.newIncome != null) {
+                    addIncome(data.newIncome);
+                }
+            }
+            setStat("Total Bookings", data.totalBookings, "");
+            setStat("Available Shows", data.availableShows, "");
+        }, e -> {
+            if (showIncome && incomeWatermark == null) {
+                incomeChart.setTitle("Monthly Income (failed to load)");
+            }
+        });
+    }
+
+    private void showIncome(Map<LocalDate, Double> incomeByDay, IncomeWatermark watermark) {
+        totalIncome = 0;
+        // Notifications off while filling, so the chart redraws once instead of per point
+        incomeSeries.setNotify(false);
+        incomeSeries.clear();
+        for (Map.Entry<LocalDate, Double> entry : incomeByDay.entrySet()) {
+            incomeSeries.add(new Day(java.sql.Date.valueOf(entry.getKey())), entry.getValue());
+            totalIncome += entry.getValue();
+        }
+        incomeSeries.setNotify(true);
+        incomeWatermark = watermark;
+        incomeChart.setTitle("Monthly Income");
+        setStat("Total Income", String.format("%.2f", totalIncome), "£");
+    }
+
+    private void addIncome(IncomeWatermark.Delta delta) {
+        incomeWatermark = delta.getNext();
+        if (delta.getRows() == 0) {
+            return;
+        }
+        incomeSeries.setNotify(false);
+        for (Map.Entry<LocalDate, Double> entry : delta.getAmountsByDay().entrySet()) {
+            Day day = new Day(java.sql.Date.valueOf(entry.getKey()));
+            Number current = incomeSeries.getValue(day);
+            incomeSeries.addOrUpdate(day, (current != null ? current.doubleValue() : 0) + entry.getValue());
+        }
+        incomeSeries.setNotify(true);
+        totalIncome += delta.getTotal();
+        setStat("Total Income", String.format("%.2f", totalIncome), "£");
+    }
+
+    private void setStat(String title, String value, String prefix) {
+        JLabel label = statValueLabels.get(title);
+        if (label != null && value != null) {
+            label.setText(prefix + value);
+        }
+    }
+
     private void refreshData() {
         // Only refresh data if user has appropriate permissions
         if (userPermissions.contains("View Bookings") || 
             userPermissions.contains("Generate Reports")) {
-            TimeSeriesCollection dataset = createIncomeDataset();
-            incomeChart.getXYPlot().setDataset(dataset);
-            chartPanel.repaint();
+            loadDashboardData();
         } else {
             JOptionPane.showMessageDialog(this, "You don't have permission to refresh data.");
         }
@@ -239,17 +373,99 @@ public class AdminDashboard extends JPanel {
     private void exportReport() {
         // Only allow export if user has Generate Reports permission
         if (userPermissions.contains("Generate Reports")) {
+            ReportExporter.Report report = (ReportExporter.Report) JOptionPane.showInputDialog(this,
+                "Report to export:", "Export Report", JOptionPane.QUESTION_MESSAGE, null,
+                ReportExporter.Report.values(), ReportExporter.Report.RECEIPTS);
+            if (report == null) {
+                return;
+            }
+
             JFileChooser fileChooser = new JFileChooser();
             fileChooser.setDialogTitle("Save Report");
             fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+            fileChooser.setSelectedFile(new java.io.File(
+                report.getTableName() + "-" + LocalDate.now() + ".csv.gz"));
             
             if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-                JOptionPane.showMessageDialog(this, 
-                    "Report exported successfully!");
+                exportInBackground(report, fileChooser.getSelectedFile().toPath());
             }
         } else {
             JOptionPane.showMessageDialog(this, 
                 "You don't have permission to export reports.");
         }
     }
+
+    // Streams the report to file off the EDT, with a progress dialog that can cancel it
+    private void exportInBackground(ReportExporter.Report report, java.nio.file.Path target) {
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting " + report + " to " + target.getFileName(),
+            "Starting...", 0, 100);
+        monitor.setMillisToPopup(0);
+        monitor.setMillisToDecideToPopup(0);
+
+        // The export polls this flag; the Cancel button is only checked on the EDT
+        java.util.concurrent.atomic.AtomicBoolean cancelRequested = new java.util.concurrent.atomic.AtomicBoolean();
+        Timer cancelCheck = new Timer(200, e -> {
+            if (monitor.isCanceled()) {
+                cancelRequested.set(true);
+                ((Timer) e.getSource()).stop();
+            }
+        });
+
+        SwingWorker<Long, String> worker = new SwingWorker<>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return ReportExporter.export(report, target, (rows, estimatedRows) -> {
+                    if (estimatedRows > 0) {
+                        // The estimate can be low, so hold at 99% until done
+                        setProgress((int) Math.min(99, rows * 100 / estimatedRows));
+                    }
+                    publish(String.format("%,d rows written", rows));
+                }, cancelRequested::get);
+            }
+
+            @Override
+            protected void process(java.util.List<String> notes) {
+                monitor.setNote(notes.get(notes.size() - 1));
+            }
+
+            // Only runs once the export has returned, so the message says what really happened
+            @Override
+            protected void done() {
+                cancelCheck.stop();
+                monitor.close();
+                try {
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                        String.format("Exported %,d rows to %s", get(), target));
+                } catch (java.util.concurrent.ExecutionException e) {
+                    if (e.getCause() instanceof java.util.concurrent.CancellationException) {
+                        JOptionPane.showMessageDialog(AdminDashboard.this, "Export cancelled.");
+                        return;
+                    }
+                    e.getCause().printStackTrace();
+                    JOptionPane.showMessageDialog(AdminDashboard.this,
+                        "Error exporting report: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+        });
+        cancelCheck.start();
+        worker.execute();
+    }
+
+    // Everything the dashboard shows, built off the EDT in one go
+    private static class DashboardData {
+        // Full load
+        Map<LocalDate, Double> incomeByDay;
+        IncomeWatermark watermark;
+        // Incremental refresh
+        IncomeWatermark.Delta newIncome;
+        String totalBookings;
+        String availableShows;
+    }
 }
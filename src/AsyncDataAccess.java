@@ -0,0 +1,141 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs data access off the Swing event dispatch thread and hands the results back on it.
+ * Queries run on virtual threads when the JVM has them (Java 21+) and on a cached pool
+ * of daemon threads otherwise; the connection pool still bounds how many hit MySQL at once.
+ *
+ * Panels normally go through a Loader, which keeps at most one request in flight and
+ * drops the results of anything that was cancelled or superseded.
+ */
+public final class AsyncDataAccess {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private AsyncDataAccess() {
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "data-access-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Shared with anything else that wants blocking JDBC work off the calling thread
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Runs query in the background, then calls onResult (or onError, which may be null)
+     * on the EDT unless the request was cancelled first.
+     */
+    public static <T> Request submit(Callable<T> query, Consumer<? super T> onResult,
+                                     Consumer<? super Exception> onError) {
+        Request request = new Request();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                T result = query.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (request.finish()) {
+                        onResult.accept(result);
+                    }
+                });
+            } catch (Exception e) {
+                if (request.isCancelled()) {
+                    return null; // Cancelled meanwhile, nobody is waiting for it
+                }
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    if (request.finish() && onError != null) {
+                        onError.accept(e);
+                    }
+                });
+            }
+            return null;
+        });
+        request.task = task;
+        EXECUTOR.execute(task);
+        return request;
+    }
+
+    public static final class Request {
+        private volatile FutureTask<Void> task;
+        private volatile boolean cancelled = false;
+        // Only touched on the EDT
+        private boolean done = false;
+
+        private Request() {
+        }
+
+        // A query that has not started yet never runs. One that is running is left to
+        // finish, since interrupting a pooled thread mid-query closes its connection,
+        // and its result is dropped.
+        public void cancel() {
+            cancelled = true;
+            FutureTask<Void> t = task;
+            if (t != null) {
+                t.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        // True while the result has not been delivered or dropped yet
+        public boolean isPending() {
+            return !done && !cancelled;
+        }
+
+        private boolean finish() {
+            if (cancelled || done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+
+    /**
+     * One panel's in-flight load. Starting a new load cancels the previous one, so only
+     * the latest selection is ever shown; call cancel() when the panel goes away.
+     * Use from the EDT only.
+     */
+    public static final class Loader {
+        private Request pending;
+
+        public <T> Request load(Callable<T> query, Consumer<? super T> onResult,
+                                Consumer<? super Exception> onError) {
+            cancel();
+            pending = submit(query, onResult, onError);
+            return pending;
+        }
+
+        public boolean isLoading() {
+            return pending != null && pending.isPending();
+        }
+
+        public void cancel() {
+            if (pending != null) {
+                pending.cancel();
+                pending = null;
+            }
+        }
+    }
+}
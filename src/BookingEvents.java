@@ -0,0 +1,93 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events for the booking lifecycle, enabled by resources/booking.jfc.
+ * Callers create the event, call begin() and commit() around the work, and leave any
+ * field that takes work to compute until shouldCommit() says the event is wanted. With
+ * recording off that is an allocation the JIT removes and a couple of flag checks, so
+ * the events can stay in for good.
+ *
+ * Performances are identified by musical id, show date (yyyy-MM-dd) and show time (HH:mm).
+ */
+public final class BookingEvents {
+
+    private static final String CATEGORY = "Theater Booking";
+
+    private BookingEvents() {
+    }
+
+    @Name("theater.SeatMapLoad")
+    @Label("Seat Map Load")
+    @Category({CATEGORY, "Seat Selection"})
+    @Description("From opening the seat selection dialog until its seat map is shown or the load ends")
+    @StackTrace(false)
+    public static final class SeatMapLoad extends Event {
+        @Label("Musical Id") public int musicalId;
+        @Label("Musical") public String musical;
+        @Label("Show Date") public String showDate;
+        @Label("Show Time") public String showTime;
+        @Label("Venues") public int venues;
+        @Label("Free Seats") public int freeSeats;
+        @Label("Outcome") @Description("shown, failed or cancelled") public String outcome;
+    }
+
+    @Name("theater.BookedSeatsFetch")
+    @Label("Booked Seats Fetch")
+    @Category({CATEGORY, "Data Access"})
+    @Description("Reading the booked seats of a performance from the database")
+    public static final class BookedSeatsFetch extends Event {
+        @Label("Musical Id") public int musicalId;
+        @Label("Musical") public String musical;
+        @Label("Venue Id") public int venueId;
+        @Label("Section Id") @Description("0 when the whole venue was read") public int sectionId;
+        @Label("Show Date") public String showDate;
+        @Label("Show Time") public String showTime;
+        @Label("Seats") public int seats;
+        @Label("Failed") public boolean failed;
+    }
+
+    @Name("theater.BookingTransaction")
+    @Label("Booking Transaction")
+    @Category({CATEGORY, "Booking"})
+    @Description("The database transaction that writes a booking, from borrowing the connection to commit or rollback")
+    public static final class BookingTransaction extends Event {
+        @Label("Musical Id") public int musicalId;
+        @Label("Show Date") public String showDate;
+        @Label("Show Time") public String showTime;
+        @Label("Receipt Id") public int receiptId;
+        @Label("Seat Count") public int seatCount;
+        @Label("Rows Written") @Description("Rows inserted or updated before the commit or rollback") public int rowsWritten;
+        @Label("Committed") public boolean committed;
+        @Label("Rollback Reason") public String rollbackReason;
+    }
+
+    @Name("theater.ReceiptWrite")
+    @Label("Receipt File Write")
+    @Category({CATEGORY, "Booking"})
+    @Description("Appending a receipt to the receipt file")
+    public static final class ReceiptWrite extends Event {
+        @Label("Musical") public String musical;
+        @Label("Show Date") public String showDate;
+        @Label("Show Time") public String showTime;
+        @Label("Path") public String path;
+        @Label("Size") @DataAmount public long bytes;
+        @Label("Failed") public boolean failed;
+    }
+
+    @Name("theater.CatalogLoad")
+    @Label("Catalog Load")
+    @Category({CATEGORY, "Data Access"})
+    @Description("Reading musicals into the catalog cache")
+    public static final class CatalogLoad extends Event {
+        @Label("Kind") @Description("full, changed or single") public String kind;
+        @Label("Musical Id") @Description("Set for single loads by id") public int musicalId;
+        @Label("Musicals") public int musicals;
+        @Label("Failed") public boolean failed;
+    }
+}
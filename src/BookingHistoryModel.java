@@ -0,0 +1,405 @@
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Booking history table model that only keeps the pages near what is on screen. Rows are
+ * receipts newest first, ordered by (created_at, id), and a page is found by keyset
+ * pagination from the nearest position already known: the top, the bottom, or the
+ * first or last row of a cached page. Only the skip to the page start walks the
+ * receipts index; the page itself is read with its key range, customers and musicals
+ * joined in and the seats fetched for just its bookings.
+ *
+ * reset() pins the view to the receipts that existed then, so bookings made while it is
+ * open don't shift the rows under the scroll bar. Use from the EDT only.
+ */
+public class BookingHistoryModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 100;
+    // Enough for a tall viewport plus the pages either side of it
+    private static final int MAX_PAGES = 12;
+    // Pages wanted but not yet loading; older requests are dropped while scrolling fast
+    private static final int MAX_WANTED = 4;
+    private static final int MAX_LOADING = 2;
+
+    private static final String[] COLUMNS = {
+        "Booking ID", "Customer", "Musical", "Show Date/Time",
+        "Seats", "Total Price", "Booking Date"
+    };
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Map<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final LinkedHashSet<Integer> wanted = new LinkedHashSet<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private final List<AsyncDataAccess.Request> requests = new ArrayList<>();
+
+    private Filter filter;
+    private int rowCount;
+    // Bumped by every reset, so pages read for an older one are dropped
+    private int generation;
+    private Runnable onError;
+
+    public void setOnError(Runnable onError) {
+        this.onError = onError;
+    }
+
+    /**
+     * Shows the bookings for shows from startDate to endDate (both null for all of them).
+     * Counting runs in the background; onCounted gets the row count on the EDT.
+     */
+    public AsyncDataAccess.Request reset(LocalDate startDate, LocalDate endDate,
+                                         Consumer<Integer> onCounted,
+                                         Consumer<? super Exception> onFailed) {
+        cancel();
+        int resetGeneration = ++generation;
+        rowCount = 0;
+        fireTableDataChanged();
+
+        return track(AsyncDataAccess.submit(() -> count(startDate, endDate), counted -> {
+            if (resetGeneration != generation) {
+                return;
+            }
+            filter = counted;
+            rowCount = counted.count;
+            fireTableDataChanged();
+            onCounted.accept(rowCount);
+        }, onFailed));
+    }
+
+    public void cancel() {
+        for (AsyncDataAccess.Request request : requests) {
+            request.cancel();
+        }
+        requests.clear();
+        pages.clear();
+        wanted.clear();
+        loading.clear();
+        filter = null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    // Rows of pages that are not loaded yet read as blank and ask for their page
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        if (page == null) {
+            want(pageIndex);
+            return column == 0 ? "..." : null;
+        }
+        int offset = row - pageIndex * PAGE_SIZE;
+        return offset < page.rows.size() ? page.rows.get(offset)[column] : null;
+    }
+
+    private void want(int pageIndex) {
+        if (loading.contains(pageIndex)) {
+            return;
+        }
+        wanted.remove(pageIndex);
+        wanted.add(pageIndex);
+        if (wanted.size() > MAX_WANTED) {
+            wanted.remove(wanted.iterator().next());
+        }
+        loadNext();
+    }
+
+    // Newest request first, since that is where the viewport is now
+    private void loadNext() {
+        while (filter != null && loading.size() < MAX_LOADING && !wanted.isEmpty()) {
+            Integer pageIndex = null;
+            for (Integer index : wanted) {
+                pageIndex = index;
+            }
+            wanted.remove(pageIndex);
+            loading.add(pageIndex);
+
+            int index = pageIndex;
+            int loadGeneration = generation;
+            Filter loadFilter = filter;
+            Anchor anchor = nearestAnchor(index);
+            track(AsyncDataAccess.submit(() -> loadPage(loadFilter, anchor), page -> {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                loading.remove(index);
+                pages.put(index, page);
+                int first = index * PAGE_SIZE;
+                fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, rowCount) - 1);
+                loadNext();
+            }, e -> {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                loading.remove(index);
+                if (onError != null) {
+                    onError.run();
+                }
+            }));
+        }
+    }
+
+    private AsyncDataAccess.Request track(AsyncDataAccess.Request request) {
+        requests.removeIf(r -> !r.isPending());
+        requests.add(request);
+        return request;
+    }
+
+    // Where to start looking for the page, counted in rows from a known position
+    private Anchor nearestAnchor(int pageIndex) {
+        int start = pageIndex * PAGE_SIZE;
+        // From the top, or the bottom reading backwards
+        Anchor best = new Anchor(null, true, start);
+        if (rowCount - 1 - start < best.skip) {
+            best = new Anchor(null, false, rowCount - 1 - start);
+        }
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            int cached = entry.getKey();
+            Page page = entry.getValue();
+            if (page.rows.isEmpty()) {
+                continue;
+            }
+            if (cached < pageIndex) {
+                int skip = start - (cached * PAGE_SIZE + page.rows.size());
+                if (skip < best.skip) {
+                    best = new Anchor(page.last, true, skip);
+                }
+            } else if (cached > pageIndex) {
+                int skip = cached * PAGE_SIZE - start - 1;
+                if (skip < best.skip) {
+                    best = new Anchor(page.first, false, skip);
+                }
+            }
+        }
+        return best;
+    }
+
+    @SuppressWarnings("try")
+    private static Filter count(LocalDate startDate, LocalDate endDate) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("bookingHistoryCount");
+             Connection conn = MusicalDataHandler.getConnection()) {
+            Filter filter = new Filter(startDate, endDate, null);
+            Query top = filter.where();
+            top.sql.append(" ORDER BY r.created_at DESC, r.id DESC LIMIT 1");
+            Key ceiling = null;
+            try (PreparedStatement pstmt = top.prepare(conn, "SELECT r.created_at, r.id FROM receipts r");
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    ceiling = new Key(rs.getTimestamp(1), rs.getInt(2));
+                }
+            }
+            filter = new Filter(startDate, endDate, ceiling);
+            if (ceiling == null) {
+                return filter;
+            }
+
+            try (PreparedStatement pstmt = filter.where().prepare(conn, "SELECT COUNT(*) FROM receipts r");
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                filter.count = rs.getInt(1);
+            }
+            return filter;
+        } catch (SQLException e) {
+            QueryMetrics.recordError("bookingHistoryCount");
+            throw e;
+        }
+    }
+
+    // Runs on a background thread, see AsyncDataAccess
+    @SuppressWarnings("try")
+    private static Page loadPage(Filter filter, Anchor anchor) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("bookingHistoryPage");
+             Connection conn = MusicalDataHandler.getConnection()) {
+            Key start = findStart(conn, filter, anchor);
+
+            Query query = filter.where();
+            if (start != null) {
+                query.sql.append(" AND (r.created_at < ? OR (r.created_at = ? AND r.id <= ?))");
+                query.params.addAll(List.of(start.createdAt, start.createdAt, start.id));
+            }
+            query.sql.append(" ORDER BY r.created_at DESC, r.id DESC LIMIT ").append(PAGE_SIZE);
+
+            Page page = new Page();
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement pstmt = query.prepare(conn,
+                     "SELECT r.id, c.username, m.name, r.show_date, r.total_price, r.created_at " +
+                     "FROM receipts r " +
+                     "JOIN customers c ON r.customer_id = c.id " +
+                     "JOIN musicals m ON r.musical_id = m.id");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    int id = rs.getInt("id");
+                    if (page.first == null) {
+                        page.first = new Key(createdAt, id);
+                    }
+                    page.last = new Key(createdAt, id);
+                    ids.add(id);
+                    page.rows.add(new Object[]{
+                        id,
+                        rs.getString("username"),
+                        rs.getString("name"),
+                        rs.getTimestamp("show_date").toLocalDateTime().format(FORMAT),
+                        null,
+                        String.format("£%.2f", rs.getDouble("total_price")),
+                        createdAt.toLocalDateTime().format(FORMAT)
+                    });
+                }
+            }
+
+            Map<Integer, String> seats = loadSeats(conn, ids);
+            for (Object[] row : page.rows) {
+                row[4] = seats.getOrDefault((Integer) row[0], "");
+            }
+            return page;
+        } catch (SQLException e) {
+            QueryMetrics.recordError("bookingHistoryPage");
+            throw e;
+        }
+    }
+
+    // The key of the page's first row, skipping rows over the receipts index only
+    private static Key findStart(Connection conn, Filter filter, Anchor anchor) throws SQLException {
+        if (anchor.from == null && anchor.forward && anchor.skip == 0) {
+            return null;
+        }
+        Query query = filter.where();
+        if (anchor.from != null) {
+            query.sql.append(anchor.forward
+                ? " AND (r.created_at < ? OR (r.created_at = ? AND r.id < ?))"
+                : " AND (r.created_at > ? OR (r.created_at = ? AND r.id > ?))");
+            query.params.addAll(List.of(anchor.from.createdAt, anchor.from.createdAt, anchor.from.id));
+        }
+        query.sql.append(anchor.forward
+            ? " ORDER BY r.created_at DESC, r.id DESC"
+            : " ORDER BY r.created_at ASC, r.id ASC");
+        query.sql.append(" LIMIT 1 OFFSET ").append(anchor.skip);
+
+        try (PreparedStatement pstmt = query.prepare(conn, "SELECT r.created_at, r.id FROM receipts r");
+             ResultSet rs = pstmt.executeQuery()) {
+            // Past the end only if receipts were deleted since the count
+            return rs.next() ? new Key(rs.getTimestamp(1), rs.getInt(2)) : null;
+        }
+    }
+
+    // Seat lists for one page of bookings, in booking order like the receipt
+    private static Map<Integer, String> loadSeats(Connection conn, List<Integer> bookingIds) throws SQLException {
+        Map<Integer, String> seats = new HashMap<>();
+        if (bookingIds.isEmpty()) {
+            return seats;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(bookingIds.size(), "?"));
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT bs.booking_id, s.name, bs.seat_number FROM booked_seats bs " +
+                 "JOIN sections s ON bs.section_id = s.id " +
+                 "WHERE bs.booking_id IN (" + placeholders + ") ORDER BY bs.booking_id, bs.id")) {
+            for (int i = 0; i < bookingIds.size(); i++) {
+                pstmt.setInt(i + 1, bookingIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String seat = rs.getString("name") + rs.getString("seat_number");
+                    seats.merge(rs.getInt("booking_id"), seat, (a, b) -> a + ", " + b);
+                }
+            }
+        }
+        return seats;
+    }
+
+    // Position of a receipt in the (created_at, id) order
+    private static final class Key {
+        final Timestamp createdAt;
+        final int id;
+
+        Key(Timestamp createdAt, int id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+    }
+
+    private static final class Page {
+        final List<Object[]> rows = new ArrayList<>(PAGE_SIZE);
+        Key first;
+        Key last;
+    }
+
+    // Start the page skip rows after from (or the top or bottom when null), reading down or up
+    private static final class Anchor {
+        final Key from;
+        final boolean forward;
+        final int skip;
+
+        Anchor(Key from, boolean forward, int skip) {
+            this.from = from;
+            this.forward = forward;
+            this.skip = skip;
+        }
+    }
+
+    // The receipts being shown: the date filter and the newest receipt at reset time
+    private static final class Filter {
+        final LocalDate startDate;
+        final LocalDate endDate;
+        final Key ceiling;
+        int count;
+
+        Filter(LocalDate startDate, LocalDate endDate, Key ceiling) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.ceiling = ceiling;
+        }
+
+        Query where() {
+            Query query = new Query();
+            query.sql.append(" WHERE 1 = 1");
+            if (startDate != null && endDate != null) {
+                query.sql.append(" AND r.show_date BETWEEN ? AND ?");
+                query.params.add(java.sql.Date.valueOf(startDate));
+                query.params.add(java.sql.Date.valueOf(endDate));
+            }
+            if (ceiling != null) {
+                query.sql.append(" AND (r.created_at < ? OR (r.created_at = ? AND r.id <= ?))");
+                query.params.addAll(List.of(ceiling.createdAt, ceiling.createdAt, ceiling.id));
+            }
+            return query;
+        }
+    }
+
+    private static final class Query {
+        final StringBuilder sql = new StringBuilder();
+        final List<Object> params = new ArrayList<>();
+
+        PreparedStatement prepare(Connection conn, String select) throws SQLException {
+            PreparedStatement pstmt = conn.prepareStatement(select + sql);
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            return pstmt;
+        }
+    }
+}
@@ -4,9 +4,6 @@ import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import org.jdatepicker.impl.*;
 import org.jdatepicker.DateModel;
 
@@ -14,8 +11,10 @@ import org.jdatepicker.DateModel;
 public class BookingHistoryPanel extends JPanel {
     private final MusicalDataHandler dataHandler;
     private JTable bookingsTable;
-    private DefaultTableModel tableModel;
+    // Loads pages as they scroll into view, so any number of bookings fits in memory
+    private final BookingHistoryModel tableModel = new BookingHistoryModel();
     private DateTimeSelector dateRangeSelector;
+    private JLabel statusLabel;
     
     public BookingHistoryPanel(MusicalDataHandler dataHandler) {
         this.dataHandler = dataHandler;
@@ -61,18 +60,6 @@ public class BookingHistoryPanel extends JPanel {
     }
     
     private void createMainContent() {
-        // Create table with columns
-        String[] columns = {
-            "Booking ID", "Customer", "Musical", "Show Date/Time", 
-            "Seats", "Total Price", "Booking Date"
-        };
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
         bookingsTable = new JTable(tableModel);
         bookingsTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
         
@@ -87,57 +74,30 @@ public class BookingHistoryPanel extends JPanel {
         
         JScrollPane scrollPane = new JScrollPane(bookingsTable);
         add(scrollPane, BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ");
+        add(statusLabel, BorderLayout.SOUTH);
+        tableModel.setOnError(() -> statusLabel.setText("Some bookings failed to load, scroll to retry"));
+    }
+
+    @Override
+    public void removeNotify() {
+        // Nobody will see the bookings any more
+        tableModel.cancel();
+        super.removeNotify();
     }
     
     private void refreshBookingsTable(LocalDate startDate, LocalDate endDate) {
-        tableModel.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
-            
-            StringBuilder queryBuilder = new StringBuilder(
-                "SELECT r.id, c.username, m.name, r.show_date, " +
-                "GROUP_CONCAT(CONCAT(s.name, bs.seat_number) SEPARATOR ', ') as seats, " +
-                "r.total_price, r.created_at " +
-                "FROM receipts r " +
-                "JOIN customers c ON r.customer_id = c.id " +
-                "JOIN musicals m ON r.musical_id = m.id " +
-                "JOIN booked_seats bs ON r.id = bs.booking_id " +
-                "JOIN sections s ON bs.section_id = s.id "
-            );
-                    
-            
-            if (startDate != null && endDate != null) {
-                queryBuilder.append("WHERE r.show_date BETWEEN ? AND ? ");
-            }
-            
-            queryBuilder.append("GROUP BY r.id ORDER BY r.created_at DESC");
-            
-            PreparedStatement pstmt = conn.prepareStatement(queryBuilder.toString());
-            
-            if (startDate != null && endDate != null) {
-                pstmt.setDate(1, java.sql.Date.valueOf(startDate));
-                pstmt.setDate(2, java.sql.Date.valueOf(endDate));
-            }
-            
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                tableModel.addRow(new Object[]{
-                    rs.getInt("id"),
-                    rs.getString("username"),
-                    rs.getString("name"),
-                    rs.getTimestamp("show_date").toLocalDateTime()
-                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
-                    rs.getString("seats"),
-                    String.format("£%.2f", rs.getDouble("total_price")),
-                    rs.getTimestamp("created_at").toLocalDateTime()
-                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
-                });
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        statusLabel.setText("Loading bookings...");
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        tableModel.reset(startDate, endDate, count -> {
+            statusLabel.setText(count + " bookings");
+            setCursor(Cursor.getDefaultCursor());
+        }, e -> {
+            statusLabel.setText(" ");
+            setCursor(Cursor.getDefaultCursor());
             JOptionPane.showMessageDialog(this, 
                 "Error loading booking data: " + e.getMessage());
-        }
+        });
     }
 }
-
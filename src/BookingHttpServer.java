@@ -0,0 +1,496 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON booking API for web and mobile clients, on the JDK's built-in HTTP server.
+ * Every exchange runs on its own thread from AsyncDataAccess, virtual on Java 21+, so a
+ * request blocked on MySQL costs a few hundred bytes rather than a platform thread.
+ * Availability is answered from SeatInventory and the catalog snapshot, so it only goes
+ * to the database when a performance is first shown or its seats are due for a reload.
+ * Only real performances are served: a day the musical runs on, one of its show times,
+ * and no further ahead than http.horizonDays, so clients cannot fill the seat
+ * inventory with made-up dates and times.
+ *
+ *   GET  /api/musicals[?category=Comedy]          catalog, with an ETag for If-None-Match
+ *   GET  /api/musicals/{id}                       one musical
+ *   GET  /api/musicals/{id}/seats?date=&time=     taken seats per section of a performance
+ *   POST /api/bookings                            books seats, HTTP Basic customer login
+ *
+ * A booking body looks like
+ *   {"musicalId": 3, "date": "2026-11-07", "time": "19:30",
+ *    "tickets": [{"venueId": 1, "sectionId": 2, "seat": "Stalls14", "type": "Adult"}]}
+ *
+ *   java -cp build/classes:lib/* -Dhttp.port=8080 -Ddb.pool.maxSize=20 BookingHttpServer
+ */
+public class BookingHttpServer {
+
+    private static final int PORT = Integer.getInteger("http.port", 8080);
+    // Connections the OS queues while every accept is busy; the JDK default of 50 is too small
+    private static final int BACKLOG = Integer.getInteger("http.backlog", 1024);
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_TICKETS = 20;
+    private static final long VENUE_CACHE_MILLIS = Long.getLong("http.venueCacheMs", 30_000);
+    private static final int HORIZON_DAYS = Integer.getInteger("http.horizonDays", 365);
+    private static final Set<String> TICKET_TYPES = Set.of("Adult", "Senior", "Student");
+
+    private final MusicalDataHandler dataHandler;
+    private final BookingService bookingService;
+    private final HttpServer server;
+    // Venue layouts and show times by musical id, they only change from the admin screens
+    private final Map<Integer, CachedPerformances> performances = new ConcurrentHashMap<>();
+
+    public BookingHttpServer(MusicalDataHandler dataHandler, InetSocketAddress address) throws IOException {
+        this.dataHandler = dataHandler;
+        this.bookingService = new BookingService(dataHandler);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(AsyncDataAccess.executor());
+    }
+
+    public static void main(String[] args) {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC driver not found on the classpath");
+            System.exit(1);
+        }
+
+        try {
+            BookingHttpServer api = new BookingHttpServer(new MusicalDataHandler(), new InetSocketAddress(PORT));
+            api.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(api::stop, "booking-api-shutdown"));
+            System.out.println("Booking API listening on port " + PORT);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Lets exchanges in progress finish for up to a second
+    public void stop() {
+        server.stop(1);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            String method = exchange.getRequestMethod();
+            if (path[0].equals("musicals")) {
+                requireMethod(method, "GET");
+                if (path.length == 1) {
+                    listMusicals(exchange);
+                } else if (path.length == 2) {
+                    getMusical(exchange, requireMusical(path[1]));
+                } else if (path.length == 3 && path[2].equals("seats")) {
+                    getSeats(exchange, requireMusical(path[1]));
+                } else {
+                    throw new ApiException(404, "Not found");
+                }
+            } else if (path[0].equals("bookings") && path.length == 1) {
+                requireMethod(method, "POST");
+                createBooking(exchange);
+            } else {
+                throw new ApiException(404, "Not found");
+            }
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IOException e) {
+            throw e; // The client went away, nothing left to answer
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void listMusicals(HttpExchange exchange) throws IOException {
+        MusicalCatalog.Snapshot snapshot = dataHandler.getCatalogSnapshot();
+        String category = queryParameters(exchange).get("category");
+        String etag = "\"" + snapshot.getVersion() + (category == null ? "" : "-" + category.hashCode()) + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        List<MusicalDataHandler.Musical> musicals = category == null
+            ? snapshot.getMusicals()
+            : snapshot.select(snapshot.getCategoryIndex().matching(category));
+        exchange.getResponseHeaders().set("ETag", etag);
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (MusicalDataHandler.Musical musical : musicals) {
+                writeMusical(json, musical);
+            }
+            json.endArray();
+        }
+    }
+
+    private void getMusical(HttpExchange exchange, MusicalDataHandler.Musical musical) throws IOException {
+        try (JsonWriter json = startJson(exchange, 200)) {
+            writeMusical(json, musical);
+        }
+    }
+
+    private void getSeats(HttpExchange exchange, MusicalDataHandler.Musical musical) throws IOException {
+        Map<String, String> query = queryParameters(exchange);
+        LocalDate date = parseDate(query.get("date"));
+        String showTime = parseTime(query.get("time"));
+        requirePerformance(musical, date, showTime);
+        List<MusicalDataHandler.VenueWithSections> musicalVenues = getVenues(musical);
+
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginObject()
+                .name("musicalId").value(musical.getId())
+                .name("date").value(date.toString())
+                .name("time").value(showTime)
+                .name("venues").beginArray();
+            for (MusicalDataHandler.VenueWithSections venue : musicalVenues) {
+                SeatInventory.VenueSeats venueSeats = dataHandler.getSeatInventory()
+                    .getVenueSeats(musical.getId(), venue, date, showTime);
+                json.beginObject()
+                    .name("id").value(venue.getId())
+                    .name("name").value(venue.getName())
+                    .name("sections").beginArray();
+                for (MusicalDataHandler.VenueSection section : venue.getSections()) {
+                    SeatInventory.SectionSeats seats = venueSeats.getSection(section.getId());
+                    if (seats == null) continue; // Added since the performance was loaded
+                    json.beginObject()
+                        .name("id").value(section.getId())
+                        .name("name").value(section.getName())
+                        .name("price").value(section.getBasePrice())
+                        .name("capacity").value(seats.getCapacity())
+                        .name("free").value(seats.freeCount())
+                        .name("taken").beginArray();
+                    for (int i = 1; i <= seats.getCapacity(); i++) {
+                        if (!seats.isFree(i)) {
+                            json.value(seats.seatNumber(i));
+                        }
+                    }
+                    json.endArray().endObject();
+                }
+                json.endArray().endObject();
+            }
+            json.endArray().endObject();
+        }
+    }
+
+    private void createBooking(HttpExchange exchange) throws IOException {
+        String username = authenticateCustomer(exchange);
+        Map<?, ?> body = asObject(parseBody(exchange), "body");
+        MusicalDataHandler.Musical musical = requireMusical(String.valueOf(body.get("musicalId")));
+        LocalDate date = parseDate(asString(body.get("date"), "date"));
+        String showTime = parseTime(asString(body.get("time"), "time"));
+        requirePerformance(musical, date, showTime);
+
+        List<?> ticketList = asList(body.get("tickets"), "tickets");
+        if (ticketList.isEmpty() || ticketList.size() > MAX_TICKETS) {
+            throw new ApiException(400, "Book between 1 and " + MAX_TICKETS + " tickets");
+        }
+        Map<Integer, MusicalDataHandler.VenueWithSections> venuesById = new HashMap<>();
+        for (MusicalDataHandler.VenueWithSections venue : getVenues(musical)) {
+            venuesById.put(venue.getId(), venue);
+        }
+        List<BookingService.SeatTicket> tickets = new ArrayList<>(ticketList.size());
+        Set<String> seen = new HashSet<>();
+        for (Object item : ticketList) {
+            Map<?, ?> ticket = asObject(item, "ticket");
+            int venueId = asInt(ticket.get("venueId"), "venueId");
+            int sectionId = asInt(ticket.get("sectionId"), "sectionId");
+            String seatNumber = asString(ticket.get("seat"), "seat");
+            String type = asString(ticket.get("type"), "type");
+            if (!TICKET_TYPES.contains(type)) {
+                throw new ApiException(400, "Unknown ticket type " + type);
+            }
+            MusicalDataHandler.VenueWithSections venue = venuesById.get(venueId);
+            MusicalDataHandler.VenueSection section = findSection(venue, sectionId);
+            SeatInventory.SectionSeats sectionSeats = section == null ? null : dataHandler.getSeatInventory()
+                .getVenueSeats(musical.getId(), venue, date, showTime).getSection(sectionId);
+            if (sectionSeats == null || sectionSeats.indexOf(seatNumber) == -1) {
+                throw new ApiException(400, "No seat " + seatNumber + " in section " + sectionId + " of venue " + venueId);
+            }
+            if (!seen.add(venueId + "/" + sectionId + "/" + seatNumber)) {
+                throw new ApiException(400, "Seat " + seatNumber + " is listed twice");
+            }
+            // Priced from the section, never from the request
+            tickets.add(new BookingService.SeatTicket(
+                new MusicalDataHandler.BookedSeat(seatNumber, section.getBasePrice(), venueId, sectionId), type));
+        }
+
+        BookingService.BookingResult result = bookingService.book(new BookingService.BookingRequest(
+            username, musical, LocalDateTime.of(date, LocalTime.parse(showTime)), tickets, null));
+        int status = switch (result.getStatus()) {
+            case BOOKED -> 201;
+            case SEATS_TAKEN, SOLD_OUT -> 409;
+            case FAILED -> 500;
+        };
+        try (JsonWriter json = startJson(exchange, status)) {
+            json.beginObject().name("status").value(result.getStatus().name());
+            switch (result.getStatus()) {
+                case BOOKED -> json
+                    .name("receiptId").value(result.getReceiptId())
+                    .name("totalPrice").value(result.getTotalPrice())
+                    .name("remainingTickets").value(result.getRemainingTickets())
+                    .name("receipt").value(result.getReceiptDetails());
+                case SEATS_TAKEN -> {
+                    json.name("conflictingSeats").beginArray();
+                    for (String seat : result.getConflictingSeats()) {
+                        json.value(seat);
+                    }
+                    json.endArray();
+                }
+                case SOLD_OUT -> json.name("error").value("Not enough tickets left");
+                case FAILED -> json.name("error").value("Booking failed, please try again");
+            }
+            json.endObject();
+        }
+    }
+
+    private void requirePerformance(MusicalDataHandler.Musical musical, LocalDate date, String showTime)
+            throws ApiException {
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today)
+                || (date.equals(today) && LocalTime.parse(showTime).isBefore(LocalTime.now()))) {
+            throw new ApiException(400, "The performance is in the past");
+        }
+        if (date.isAfter(today.plusDays(HORIZON_DAYS))) {
+            throw new ApiException(400, "Performances can be booked up to " + HORIZON_DAYS + " days ahead");
+        }
+        if (!runsOn(musical.getAvailableDays(), date)) {
+            throw new ApiException(400, musical.getName() + " does not run on " + date.getDayOfWeek());
+        }
+        if (!getPerformances(musical).showTimes.contains(showTime)) {
+            throw new ApiException(404, musical.getName() + " has no performance at " + showTime);
+        }
+    }
+
+    private List<MusicalDataHandler.VenueWithSections> getVenues(MusicalDataHandler.Musical musical) {
+        return getPerformances(musical).venues;
+    }
+
+    private CachedPerformances getPerformances(MusicalDataHandler.Musical musical) {
+        CachedPerformances cached = performances.get(musical.getId());
+        if (cached == null || System.currentTimeMillis() - cached.loadedAt > VENUE_CACHE_MILLIS) {
+            cached = new CachedPerformances(dataHandler.getVenuesForMusical(musical.getName()),
+                dataHandler.getShowTimes(musical.getId()));
+            if (!cached.venues.isEmpty() && !cached.showTimes.isEmpty()) {
+                performances.put(musical.getId(), cached);
+            }
+        }
+        return cached;
+    }
+
+    private static MusicalDataHandler.VenueSection findSection(MusicalDataHandler.VenueWithSections venue,
+                                                              int sectionId) {
+        if (venue == null) return null;
+        for (MusicalDataHandler.VenueSection section : venue.getSections()) {
+            if (section.getId() == sectionId) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    // Customers only; staff book through the desktop app
+    private String authenticateCustomer(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String credentials = null;
+        if (header != null && header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()),
+                    StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                // Treated as missing below
+            }
+        }
+        int colon = credentials == null ? -1 : credentials.indexOf(':');
+        if (colon > 0) {
+            String username = credentials.substring(0, colon);
+            MusicalDataHandler.AuthenticationResult auth =
+                dataHandler.authenticateUser(username, credentials.substring(colon + 1));
+            if (auth.isAuthenticated() && "CUSTOMER".equals(auth.getUserType())) {
+                return username;
+            }
+        }
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"bookings\"");
+        throw new ApiException(401, "Customer login required");
+    }
+
+    private static boolean runsOn(String availableDays, LocalDate date) {
+        if (availableDays == null) return false;
+        return Arrays.stream(availableDays.replace("\"", "").split(","))
+            .map(String::trim)
+            .anyMatch(day -> day.equalsIgnoreCase(date.getDayOfWeek().name()));
+    }
+
+    private MusicalDataHandler.Musical requireMusical(String id) throws ApiException {
+        MusicalDataHandler.Musical musical = null;
+        try {
+            musical = dataHandler.getMusicalById(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            // Falls through to not found
+        }
+        if (musical == null) {
+            throw new ApiException(404, "No musical " + id);
+        }
+        return musical;
+    }
+
+    private static void requireMethod(String method, String allowed) throws ApiException {
+        if (!method.equals(allowed)) {
+            throw new ApiException(405, method + " not allowed here");
+        }
+    }
+
+    private static LocalDate parseDate(String date) throws ApiException {
+        if (date == null) {
+            throw new ApiException(400, "date is required");
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "date must be YYYY-MM-DD");
+        }
+    }
+
+    // Normalized to HH:mm, as show times are matched on that part only
+    private static String parseTime(String time) throws ApiException {
+        if (time == null) {
+            throw new ApiException(400, "time is required");
+        }
+        try {
+            return SeatInventory.normalizeShowTime(LocalTime.parse(time).toString());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "time must be HH:mm");
+        }
+    }
+
+    private static Object parseBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+                }
+            }
+        }
+        try {
+            return JsonReader.parse(body.toString(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Malformed JSON: " + e.getMessage());
+        }
+    }
+
+    private static Map<?, ?> asObject(Object value, String name) throws ApiException {
+        if (value instanceof Map<?, ?> map) return map;
+        throw new ApiException(400, name + " must be an object");
+    }
+
+    private static List<?> asList(Object value, String name) throws ApiException {
+        if (value instanceof List<?> list) return list;
+        throw new ApiException(400, name + " must be an array");
+    }
+
+    private static String asString(Object value, String name) throws ApiException {
+        if (value instanceof String s) return s;
+        throw new ApiException(400, name + " must be a string");
+    }
+
+    private static int asInt(Object value, String name) throws ApiException {
+        if (value instanceof Long l && l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) return l.intValue();
+        throw new ApiException(400, name + " must be an integer");
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void writeMusical(JsonWriter json, MusicalDataHandler.Musical musical) throws IOException {
+        json.beginObject()
+            .name("id").value(musical.getId())
+            .name("name").value(musical.getName())
+            .name("runTime").value(musical.getRunTime())
+            .name("categories").value(musical.getCategories())
+            .name("ageRestriction").value(musical.getAgeRestriction())
+            .name("price").value(musical.getPrice())
+            .name("availableTickets").value(musical.getAvailableTickets())
+            .name("availableDays").value(musical.getAvailableDays())
+            .endObject();
+    }
+
+    // Sends the headers with chunked encoding, the body is written as it is produced
+    private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(
+            new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return; // Failed halfway through a response, closing the exchange cuts it short
+        }
+        try (JsonWriter json = startJson(exchange, status)) {
+            json.beginObject().name("error").value(message).endObject();
+        }
+    }
+
+    private static final class CachedPerformances {
+        final List<MusicalDataHandler.VenueWithSections> venues;
+        final List<String> showTimes;
+        final long loadedAt = System.currentTimeMillis();
+
+        CachedPerformances(List<MusicalDataHandler.VenueWithSections> venues, List<String> showTimes) {
+            this.venues = venues;
+            this.showTimes = showTimes;
+        }
+    }
+
+    private static final class ApiException extends IOException {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
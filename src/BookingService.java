@@ -0,0 +1,331 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Books seats for a customer, independent of any UI. A booking claims its seats in
+ * memory (or takes over an existing hold), then writes the receipt, seats, income and
+ * ticket count in one transaction. The service keeps no per-booking state, so one
+ * instance can run any number of bookings concurrently; the connection pool bounds
+ * how many reach MySQL at once.
+ */
+public class BookingService {
+
+    private static final String INCOME_CATEGORY = "Ticket Sales";
+    // InnoDB rolled the transaction back as a deadlock victim, it can simply run again
+    private static final String DEADLOCK_STATE = "40001";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MusicalDataHandler dataHandler;
+
+    public BookingService(MusicalDataHandler dataHandler) {
+        this.dataHandler = dataHandler;
+    }
+
+    //  price calculation method
+    public static double calculatePrice(double basePrice, String ticketType, int ticketCount) {
+        // Apply discount based on ticket type
+        double discount = switch (ticketType) {
+            case "Senior" -> 0.3; // 30% off
+            case "Student" -> 0.6; // 60% off
+            default -> 0.0;  // No discount for Adult
+        };
+
+        // Final price calculation
+        return basePrice * ticketCount * (1 - discount);
+    }
+
+    public BookingResult book(BookingRequest request) {
+        MusicalDataHandler.Musical musical = request.getMusical();
+        List<MusicalDataHandler.BookedSeat> seats = request.getSeats();
+        if (seats.isEmpty()) {
+            return BookingResult.failed("No seats selected");
+        }
+
+        // Use the seats held at selection time; if the hold ran out, or was taken for other
+        // seats or another performance, give it up and claim the requested seats instead
+        SeatHoldManager.SeatHold hold = request.getHold();
+        SeatClaimEngine.Claim claim = null;
+        if (hold != null) {
+            if (hold.covers(musical.getId(), request.getShowDate(), request.getShowTime(), seats)) {
+                claim = hold.convert();
+            } else {
+                hold.release();
+            }
+        }
+        if (claim == null) {
+            SeatClaimEngine.ClaimResult claimResult = dataHandler.getSeatClaimEngine().claim(
+                musical.getId(), request.getShowDate(), request.getShowTime(), seats);
+            if (!claimResult.isClaimed()) {
+                return BookingResult.seatsTaken(claimResult.getConflictingSeats());
+            }
+            claim = claimResult.getClaim();
+        }
+
+        boolean committed = false;
+        try {
+            BookingResult result = commitRetryingDeadlocks(request);
+            committed = result.isBooked();
+            return result;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Booked from another kiosk since we last loaded the seat map
+            for (MusicalDataHandler.BookedSeat seat : seats) {
+                dataHandler.getSeatInventory().invalidate(musical.getId(), seat.getVenueId(),
+                    request.getShowDate(), request.getShowTime());
+            }
+            return BookingResult.seatsTaken(Collections.emptyList());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return BookingResult.failed(e.getMessage());
+        } finally {
+            if (!committed) {
+                claim.release();
+            }
+        }
+    }
+
+    private BookingResult commitRetryingDeadlocks(BookingRequest request) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return commit(request);
+            } catch (SQLException e) {
+                if (!DEADLOCK_STATE.equals(e.getSQLState()) || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Writes the booking in one transaction; nothing is written unless it returns BOOKED
+    private BookingResult commit(BookingRequest request) throws SQLException {
+        MusicalDataHandler.Musical musical = request.getMusical();
+        List<SeatTicket> tickets = request.getTickets();
+        java.sql.Date showDate = java.sql.Date.valueOf(request.getShowDate());
+        Connection conn = null;
+        QueryMetrics.Timer timer = QueryMetrics.time("bookingTransaction");
+        BookingEvents.BookingTransaction event = new BookingEvents.BookingTransaction();
+        event.begin();
+        try {
+            conn = MusicalDataHandler.getConnection();
+            conn.setAutoCommit(false);
+
+            // First, before any insert: the foreign keys to musicals take a shared lock on
+            // the musical's row, and two bookings both holding it would deadlock upgrading
+            // it here. Taking it exclusively up front queues them instead.
+            int remainingTickets = dataHandler.reserveTickets(conn, musical.getId(), tickets.size());
+            if (remainingTickets < 0) {
+                conn.rollback();
+                event.rollbackReason = "Sold out";
+                return BookingResult.soldOut();
+            }
+            event.rowsWritten++;
+
+            // Calculate total price and build receipt details
+            double totalPrice = 0;
+            StringBuilder receiptDetails = new StringBuilder();
+            for (SeatTicket ticket : tickets) {
+                double seatPrice = calculatePrice(ticket.getSeat().getPrice(), ticket.getTicketType(), 1);
+                totalPrice += seatPrice;
+                receiptDetails.append(String.format("%s ticket - Seat %s: £%.2f\n",
+                    ticket.getTicketType(), ticket.getSeat().getSeatNumber(), seatPrice));
+            }
+
+            // Insert receipt record, the customer id is looked up by the insert itself
+            PreparedStatement receiptStmt = MusicalDataHandler.prepare(conn, NamedStatement.INSERT_RECEIPT);
+            receiptStmt.setInt(1, musical.getId());
+            receiptStmt.setDouble(2, totalPrice);
+            receiptStmt.setDate(3, showDate);
+            receiptStmt.setString(4, request.getShowTime());
+            receiptStmt.setString(5, receiptDetails.toString());
+            receiptStmt.setString(6, request.getUsername());
+            if (receiptStmt.executeUpdate() == 0) {
+                throw new SQLException("Customer not found: " + request.getUsername());
+            }
+            event.rowsWritten++;
+
+            int receiptId = 0;
+            try (ResultSet rs = receiptStmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    receiptId = rs.getInt(1);
+                }
+            }
+
+            // Store booked seats with receipt ID, sent as a single multi-row insert
+            PreparedStatement seatStmt = MusicalDataHandler.prepare(conn, NamedStatement.INSERT_BOOKED_SEAT);
+            for (SeatTicket ticket : tickets) {
+                MusicalDataHandler.BookedSeat seat = ticket.getSeat();
+                seatStmt.setInt(1, musical.getId());
+                seatStmt.setInt(2, seat.getVenueId());
+                seatStmt.setInt(3, seat.getSectionId());
+                seatStmt.setString(4, seat.getSeatNumber());
+                seatStmt.setDate(5, showDate);
+                seatStmt.setString(6, request.getShowTime());
+                seatStmt.setInt(7, receiptId);
+                seatStmt.addBatch();
+            }
+            for (int count : seatStmt.executeBatch()) {
+                // Rewritten batches report SUCCESS_NO_INFO rather than a count
+                event.rowsWritten += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+
+            // Store income data
+            PreparedStatement incomeStmt = MusicalDataHandler.prepare(conn, NamedStatement.INSERT_INCOME);
+            incomeStmt.setDouble(1, totalPrice);
+            incomeStmt.setDate(2, showDate);
+            incomeStmt.setString(3, INCOME_CATEGORY);
+            incomeStmt.setString(4, "Booking for " + musical.getName());
+            event.rowsWritten += incomeStmt.executeUpdate();
+
+            // Dashboard rollups
+            IncomeRollups.record(conn, musical.getId(), INCOME_CATEGORY, totalPrice, tickets.size());
+            event.rowsWritten += 2;
+
+            conn.commit();
+            event.committed = true;
+            event.receiptId = receiptId;
+            dataHandler.updateTicketCount(musical.getId(), remainingTickets);
+
+            return BookingResult.booked(receiptId, totalPrice, receiptDetails.toString(), remainingTickets);
+
+        } catch (SQLException e) {
+            QueryMetrics.recordError("bookingTransaction");
+            event.rollbackReason = e instanceof SQLIntegrityConstraintViolationException
+                ? "Seat already booked"
+                : e.getClass().getSimpleName() + " (" + e.getSQLState() + "): " + e.getMessage();
+            try {
+                if (conn != null) conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            try {
+                if (conn != null) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            timer.close();
+            event.end();
+            if (event.shouldCommit()) {
+                event.musicalId = musical.getId();
+                event.showDate = request.getShowDate().toString();
+                event.showTime = request.getShowTime();
+                event.seatCount = tickets.size();
+                event.commit();
+            }
+        }
+    }
+
+    // One seat and the ticket type it is sold at
+    public static final class SeatTicket {
+        private final MusicalDataHandler.BookedSeat seat;
+        private final String ticketType;
+
+        public SeatTicket(MusicalDataHandler.BookedSeat seat, String ticketType) {
+            this.seat = seat;
+            this.ticketType = ticketType;
+        }
+
+        public MusicalDataHandler.BookedSeat getSeat() { return seat; }
+        public String getTicketType() { return ticketType; }
+    }
+
+    public static final class BookingRequest {
+        private final String username;
+        private final MusicalDataHandler.Musical musical;
+        private final LocalDate showDate;
+        private final String showTime;
+        private final List<SeatTicket> tickets;
+        private final SeatHoldManager.SeatHold hold;
+
+        /**
+         * hold may be null. If given, the booking takes it over whatever the outcome:
+         * its seats end up booked or released.
+         */
+        public BookingRequest(String username, MusicalDataHandler.Musical musical, LocalDateTime showDateTime,
+                              List<SeatTicket> tickets, SeatHoldManager.SeatHold hold) {
+            this.username = username;
+            this.musical = musical;
+            this.showDate = showDateTime.toLocalDate();
+            this.showTime = showDateTime.format(DateTimeFormatter.ofPattern("HH:mm"));
+            this.tickets = Collections.unmodifiableList(new ArrayList<>(tickets));
+            this.hold = hold;
+        }
+
+        public String getUsername() { return username; }
+        public MusicalDataHandler.Musical getMusical() { return musical; }
+        public LocalDate getShowDate() { return showDate; }
+        public String getShowTime() { return showTime; }
+        public List<SeatTicket> getTickets() { return tickets; }
+        public SeatHoldManager.SeatHold getHold() { return hold; }
+
+        public List<MusicalDataHandler.BookedSeat> getSeats() {
+            List<MusicalDataHandler.BookedSeat> seats = new ArrayList<>(tickets.size());
+            for (SeatTicket ticket : tickets) {
+                seats.add(ticket.getSeat());
+            }
+            return seats;
+        }
+    }
+
+    public static final class BookingResult {
+        public enum Status {
+            BOOKED,
+            // Some seats were taken by another customer, see getConflictingSeats()
+            SEATS_TAKEN,
+            // The musical has fewer tickets left than were asked for
+            SOLD_OUT,
+            FAILED
+        }
+
+        private final Status status;
+        private final int receiptId;
+        private final double totalPrice;
+        private final String receiptDetails;
+        private final int remainingTickets;
+        private final List<String> conflictingSeats;
+        private final String errorMessage;
+
+        private BookingResult(Status status, int receiptId, double totalPrice, String receiptDetails,
+                              int remainingTickets, List<String> conflictingSeats, String errorMessage) {
+            this.status = status;
+            this.receiptId = receiptId;
+            this.totalPrice = totalPrice;
+            this.receiptDetails = receiptDetails;
+            this.remainingTickets = remainingTickets;
+            this.conflictingSeats = conflictingSeats;
+            this.errorMessage = errorMessage;
+        }
+
+        static BookingResult booked(int receiptId, double totalPrice, String receiptDetails, int remainingTickets) {
+            return new BookingResult(Status.BOOKED, receiptId, totalPrice, receiptDetails, remainingTickets,
+                Collections.emptyList(), null);
+        }
+
+        // conflictingSeats is empty when the database, not the claim, found the conflict
+        static BookingResult seatsTaken(List<String> conflictingSeats) {
+            return new BookingResult(Status.SEATS_TAKEN, 0, 0, null, -1, conflictingSeats, null);
+        }
+
+        static BookingResult soldOut() {
+            return new BookingResult(Status.SOLD_OUT, 0, 0, null, -1, Collections.emptyList(), null);
+        }
+
+        static BookingResult failed(String errorMessage) {
+            return new BookingResult(Status.FAILED, 0, 0, null, -1, Collections.emptyList(), errorMessage);
+        }
+
+        public boolean isBooked() { return status == Status.BOOKED; }
+        public Status getStatus() { return status; }
+        public int getReceiptId() { return receiptId; }
+        public double getTotalPrice() { return totalPrice; }
+        public String getReceiptDetails() { return receiptDetails; }
+        public int getRemainingTickets() { return remainingTickets; }
+        public List<String> getConflictingSeats() { return conflictingSeats; }
+        public String getErrorMessage() { return errorMessage; }
+    }
+}
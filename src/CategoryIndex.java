@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from category to the musicals in it, one bitmap per category.
+ * Bit i stands for the i-th musical of the catalog snapshot the index was built from,
+ * see MusicalCatalog.Snapshot.select(). Categories are matched whole and case-insensitively,
+ * so "Musical" no longer matches "Comedy Musicals".
+ */
+public class CategoryIndex {
+
+    private final Map<String, BitSet> postings;
+    private final List<String> categories;
+
+    public CategoryIndex(List<MusicalDataHandler.Musical> musicals) {
+        Map<String, BitSet> index = new HashMap<>();
+        // Normalized name to the first spelling seen, sorted for the dropdown
+        Map<String, String> displayNames = new TreeMap<>();
+        for (int i = 0; i < musicals.size(); i++) {
+            String categoryList = musicals.get(i).getCategories();
+            if (categoryList == null) continue;
+            for (String category : categoryList.split(",")) {
+                String display = category.trim();
+                if (display.isEmpty()) continue;
+                String key = normalize(display);
+                index.computeIfAbsent(key, k -> new BitSet()).set(i);
+                displayNames.putIfAbsent(key, display);
+            }
+        }
+        this.postings = index;
+        this.categories = Collections.unmodifiableList(new ArrayList<>(displayNames.values()));
+    }
+
+    static String normalize(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Distinct categories in alphabetical order
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public BitSet matching(String category) {
+        BitSet bits = postings.get(normalize(category));
+        return bits == null ? new BitSet() : (BitSet) bits.clone();
+    }
+}
@@ -0,0 +1,400 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections shared by every data access path in the app.
+ * Callers borrow with getConnection() and give the connection back by closing it,
+ * so the existing try-with-resources blocks work unchanged.
+ * Each pooled connection also keeps its own cache of NamedStatements.
+ */
+public class ConnectionPool {
+
+    // Skip the validation ping for connections that were in use this recently
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5000;
+
+    private final String url;
+    private final Properties connectionProps;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    // Capturing a stack trace on every borrow is costly, so leaks are only traced on request
+    private final boolean captureBorrowTraces;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+
+    // Statistics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private volatile boolean shutdown = false;
+
+    public ConnectionPool(String url, Properties connectionProps, int maxSize,
+                          long borrowTimeoutMillis, long leakThresholdMillis, boolean captureBorrowTraces) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.connectionProps = connectionProps;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.captureBorrowTraces = captureBorrowTraces;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::detectLeaks,
+            HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                    "ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            recordWait(System.nanoTime() - start);
+            pooled.markBorrowed(captureBorrowTraces && leakThresholdMillis > 0);
+            borrowed.add(pooled);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS
+                    || isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            discard(pooled);
+        }
+        return createConnection();
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, connectionProps);
+        openConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            pooled.closeOpenStatements();
+            if (!pooled.physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (shutdown) {
+                discard(pooled);
+            } else {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is already broken, nothing else to do
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakThresholdMillis <= 0) return;
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                pooled.leakReported = true;
+                leaksDetected.increment();
+                Throwable trace = pooled.borrowTrace;
+                System.err.println("Possible connection leak: connection held for " +
+                    (now - pooled.borrowedAt) + "ms" + (trace != null ? ", borrowed at:" :
+                    " (run with -Ddb.pool.leakTraces=true to see where it was borrowed)"));
+                if (trace != null) {
+                    trace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached PreparedStatement for the given statement on this connection,
+     * preparing it on first use. The statement belongs to the pooled connection and
+     * must not be closed by the caller.
+     */
+    public static PreparedStatement prepareCached(Connection conn, NamedStatement statement)
+            throws SQLException {
+        if (Proxy.isProxyClass(conn.getClass())
+                && Proxy.getInvocationHandler(conn) instanceof PooledConnection) {
+            return ((PooledConnection) Proxy.getInvocationHandler(conn)).prepareCached(statement);
+        }
+        // Not one of ours, fall back to a plain statement
+        return statement.prepare(conn);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        return new PoolStats(
+            maxSize,
+            openConnections.get(),
+            borrowed.size(),
+            idle.size(),
+            permits.getQueueLength(),
+            borrows,
+            borrows == 0 ? 0 : totalWaitNanos.sum() / borrows / 1000,
+            maxWaitNanos.get() / 1000,
+            borrowTimeouts.sum(),
+            createdCount.sum(),
+            validationFailures.sum(),
+            leaksDetected.sum(),
+            statementCacheHits.sum(),
+            statementCacheMisses.sum()
+        );
+    }
+
+    // A physical connection plus the proxy handed out to callers
+    private class PooledConnection implements InvocationHandler {
+        final Connection physical;
+        final Connection proxy;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private final Map<NamedStatement, PreparedStatement> statementCache =
+            new EnumMap<>(NamedStatement.class);
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Throwable borrowTrace;
+        volatile boolean leakReported;
+        private volatile boolean checkedOut;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        void markBorrowed(boolean captureTrace) {
+            borrowedAt = System.currentTimeMillis();
+            borrowTrace = captureTrace ? new Throwable("Connection borrowed here") : null;
+            leakReported = false;
+            checkedOut = true;
+        }
+
+        synchronized boolean markReturned() {
+            if (!checkedOut) return false;
+            checkedOut = false;
+            return true;
+        }
+
+        synchronized PreparedStatement prepareCached(NamedStatement statement) throws SQLException {
+            if (!checkedOut) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            PreparedStatement pstmt = statementCache.get(statement);
+            if (pstmt != null && !pstmt.isClosed()) {
+                statementCacheHits.increment();
+                pstmt.clearParameters();
+                pstmt.clearBatch();
+                return pstmt;
+            }
+            statementCacheMisses.increment();
+            pstmt = statement.prepare(physical);
+            statementCache.put(statement, pstmt);
+            return pstmt;
+        }
+
+        synchronized void closeOpenStatements() {
+            // Callers often forget to close statements; do it for them on return
+            for (Statement stmt : openStatements) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // Ignore, the statement is being discarded anyway
+                }
+            }
+            openStatements.clear();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (markReturned()) {
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return !checkedOut || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (!checkedOut) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof Statement) {
+                    synchronized (this) {
+                        openStatements.add((Statement) result);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    public static class PoolStats {
+        private final int maxSize;
+        private final int openConnections;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int waitingThreads;
+        private final long totalBorrows;
+        private final long averageWaitMicros;
+        private final long maxWaitMicros;
+        private final long borrowTimeouts;
+        private final long connectionsCreated;
+        private final long validationFailures;
+        private final long leaksDetected;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+
+        public PoolStats(int maxSize, int openConnections, int activeConnections, int idleConnections,
+                         int waitingThreads, long totalBorrows, long averageWaitMicros, long maxWaitMicros,
+                         long borrowTimeouts, long connectionsCreated, long validationFailures,
+                         long leaksDetected, long statementCacheHits, long statementCacheMisses) {
+            this.maxSize = maxSize;
+            this.openConnections = openConnections;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.waitingThreads = waitingThreads;
+            this.totalBorrows = totalBorrows;
+            this.averageWaitMicros = averageWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+            this.borrowTimeouts = borrowTimeouts;
+            this.connectionsCreated = connectionsCreated;
+            this.validationFailures = validationFailures;
+            this.leaksDetected = leaksDetected;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        // Getters
+        public int getMaxSize() { return maxSize; }
+        public int getOpenConnections() { return openConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getTotalBorrows() { return totalBorrows; }
+        public long getAverageWaitMicros() { return averageWaitMicros; }
+        public long getMaxWaitMicros() { return maxWaitMicros; }
+        public long getBorrowTimeouts() { return borrowTimeouts; }
+        public long getConnectionsCreated() { return connectionsCreated; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getLeaksDetected() { return leaksDetected; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "Pool[max=%d, open=%d, active=%d, idle=%d, waiting=%d, borrows=%d, " +
+                "avgWait=%dus, maxWait=%dus, timeouts=%d, created=%d, invalid=%d, leaks=%d, " +
+                "stmtCacheHits=%d, stmtCacheMisses=%d]",
+                maxSize, openConnections, activeConnections, idleConnections, waitingThreads,
+                totalBorrows, averageWaitMicros, maxWaitMicros, borrowTimeouts,
+                connectionsCreated, validationFailures, leaksDetected,
+                statementCacheHits, statementCacheMisses);
+        }
+    }
+}
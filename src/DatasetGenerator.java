@@ -0,0 +1,735 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Builds a large, realistic data set for scale testing: venues with sections, musicals
+ * playing at them, customers, and receipts with their booked seats and income rows.
+ * Output depends only on the sizes and the seed, so a run can be reproduced exactly.
+ *
+ * Rows are written as CSV and bulk-loaded with LOAD DATA LOCAL INFILE. If the server
+ * refuses local files they are sent as batched multi-row inserts instead.
+ *
+ *   java -cp build/classes:lib/* DatasetGenerator --scale=0.1 --out=dataset
+ *   java -cp build/classes:lib/* -Ddb.url=jdbc:mysql://localhost:3306/musical_tickets_load \
+ *        DatasetGenerator --load --replace
+ *
+ * Tests and benchmarks can use it directly: new DatasetGenerator(sizes, seed).writeCsv(dir).
+ */
+public class DatasetGenerator {
+
+    // Loaded in this order, cleared in reverse
+    public enum Table {
+        VENUES("venues", "id", "name", "total_capacity", "section_count"),
+        SECTIONS("sections", "id", "venue_id", "name", "capacity", "base_price"),
+        MUSICALS("musicals", "id", "name", "run_time", "categories", "age_restriction", "price",
+            "available_tickets", "available_days"),
+        SHOW_TIMES("show_times", "id", "musical_id", "show_time"),
+        MUSICAL_VENUES("musical_venues", "musical_id", "venue_id", "price_multiplier"),
+        CUSTOMERS("customers", "id", "username", "password", "email", "phone_number", "created_at"),
+        RECEIPTS("receipts", "id", "customer_id", "musical_id", "total_price", "show_date", "show_time",
+            "receipt_text", "created_at"),
+        BOOKED_SEATS("booked_seats", "id", "musical_id", "venue_id", "section_id", "seat_number",
+            "show_date", "show_time", "booking_id"),
+        INCOME_DATA("income_data", "id", "amount", "transaction_date", "category", "description", "created_at");
+
+        private final String tableName;
+        private final String[] columns;
+
+        Table(String tableName, String... columns) {
+            this.tableName = tableName;
+            this.columns = columns;
+        }
+
+        public String getTableName() { return tableName; }
+        public String[] getColumns() { return columns; }
+
+        String fileName() {
+            return tableName + ".csv";
+        }
+    }
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int BATCH_SIZE = 5_000;
+
+    private static final String[] TITLE_WORDS = {
+        "Midnight", "Golden", "Silent", "Crimson", "Electric", "Velvet", "Wandering", "Hidden",
+        "Broken", "Starlit", "Last", "Painted", "Restless", "Secret", "Winter", "Summer",
+        "Lost", "Burning", "Paper", "Glass"
+    };
+    private static final String[] TITLE_NOUNS = {
+        "Garden", "Harbour", "Crown", "Carousel", "Symphony", "Kingdom", "Lantern", "Voyage",
+        "Masquerade", "Ballroom", "Express", "Orchard", "Circus", "Serenade", "Lighthouse",
+        "Revolution", "Empire", "Waltz", "Heart", "Rhapsody"
+    };
+    private static final String[] CATEGORIES = {
+        "Drama", "Romance", "Comedy", "Family", "Musical", "Fantasy", "Historical", "Jukebox",
+        "Classic", "Dance", "Opera", "Mystery"
+    };
+    private static final String[] AGE_RESTRICTIONS = {"All ages", "8+", "12+", "16+", "18+"};
+    private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    private static final String[] SHOW_TIMES = {"13:00", "14:00", "14:30", "18:30", "19:00", "19:30", "20:00", "20:30"};
+    private static final String[] VENUE_WORDS = {
+        "Royal", "Grand", "Majestic", "Apollo", "Empire", "Lyric", "Palace", "Starlight",
+        "Regent", "Savoy", "Orpheum", "Riverside"
+    };
+    private static final String[] VENUE_TYPES = {"Theatre", "Hall", "Opera House", "Playhouse", "Arena"};
+    private static final String[] SECTION_NAMES = {
+        "Orchestra", "Stalls", "Mezzanine", "Dress Circle", "Grand Circle", "Balcony", "Upper Circle", "Gallery"
+    };
+    private static final String[] TICKET_TYPES = {"Adult", "Adult", "Adult", "Senior", "Student"};
+    private static final String[] OTHER_INCOME = {"Merchandise", "Concessions", "Programmes"};
+
+    private final Sizes sizes;
+    private final long seed;
+    // Shows start about ten months ago, so most bookings are in the past
+    private final LocalDate firstShowDate;
+
+    public DatasetGenerator(Sizes sizes, long seed) {
+        this(sizes, seed, LocalDate.now().minusDays(300));
+    }
+
+    public DatasetGenerator(Sizes sizes, long seed, LocalDate firstShowDate) {
+        this.sizes = sizes;
+        this.seed = seed;
+        this.firstShowDate = firstShowDate;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+
+        DatasetGenerator generator = new DatasetGenerator(options.sizes, options.seed);
+        System.out.println("Generating " + options.sizes + " with seed " + options.seed);
+        long started = System.nanoTime();
+        try {
+            if (!options.load) {
+                generator.writeCsv(options.out);
+            } else {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+                try (Connection conn = openLoadConnection(options.out)) {
+                    generator.load(conn, options.out, options.replace, options.batch);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC driver not found on the classpath");
+            System.exit(1);
+        } catch (IOException | SQLException | IllegalStateException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.out.printf("Done in %.1f s%n", (System.nanoTime() - started) / 1e9);
+    }
+
+    // Local files are only allowed from the CSV directory
+    private static Connection openLoadConnection(Path csvDir) throws SQLException, IOException {
+        Files.createDirectories(csvDir);
+        Properties props = new Properties();
+        props.setProperty("user", MusicalDataHandler.USER);
+        props.setProperty("password", MusicalDataHandler.PASS);
+        props.setProperty("allowLoadLocalInfileInPath", csvDir.toAbsolutePath().toString());
+        props.setProperty("rewriteBatchedStatements", "true");
+        return DriverManager.getConnection(MusicalDataHandler.DB_URL, props);
+    }
+
+    /** Writes one CSV file per table into dir, in the format load() expects. */
+    public void writeCsv(Path dir) throws IOException, SQLException {
+        Files.createDirectories(dir);
+        Map<Table, RowSink> sinks = new EnumMap<>(Table.class);
+        try {
+            for (Table table : Table.values()) {
+                sinks.put(table, new CsvSink(Files.newBufferedWriter(dir.resolve(table.fileName()),
+                    StandardCharsets.UTF_8)));
+            }
+            generate(sinks);
+        } finally {
+            closeAll(sinks);
+        }
+    }
+
+    /**
+     * Generates the data set into the database on conn. The tables must be empty unless
+     * replace is set, in which case they are truncated first. Unless batch is set, rows
+     * go through CSV files in csvDir and LOAD DATA LOCAL INFILE. The income rollups are
+     * rebuilt afterwards.
+     */
+    public void load(Connection conn, Path csvDir, boolean replace, boolean batch) throws IOException, SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!replace) {
+                for (Table table : Table.values()) {
+                    try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table.tableName + " LIMIT 1")) {
+                        if (rs.next()) {
+                            throw new IllegalStateException(table.tableName
+                                + " already has rows, use --replace to clear the generated tables first");
+                        }
+                    }
+                }
+            }
+
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+            stmt.execute("SET UNIQUE_CHECKS = 0");
+            try {
+                if (replace) {
+                    Table[] tables = Table.values();
+                    for (int i = tables.length - 1; i >= 0; i--) {
+                        stmt.execute("TRUNCATE TABLE " + tables[i].tableName);
+                    }
+                }
+                boolean loaded = false;
+                if (!batch) {
+                    writeCsv(csvDir);
+                    loaded = loadCsv(conn, csvDir);
+                }
+                if (!loaded) {
+                    insertBatched(conn);
+                }
+            } finally {
+                stmt.execute("SET UNIQUE_CHECKS = 1");
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+
+            // Fresh statistics so the optimizer sees the new row counts
+            for (Table table : Table.values()) {
+                stmt.execute("ANALYZE TABLE " + table.tableName);
+            }
+        }
+
+        // The bulk load bypassed the booking path, so the dashboard rollups start from scratch
+        long started = System.nanoTime();
+        IncomeRollups.rebuildAll(conn);
+        System.out.printf("Rebuilt rollups      %8.1f s%n", (System.nanoTime() - started) / 1e9);
+    }
+
+    // Returns false, having loaded nothing, if the server does not accept local files
+    private boolean loadCsv(Connection conn, Path csvDir) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (Table table : Table.values()) {
+                String path = csvDir.resolve(table.fileName()).toAbsolutePath().toString()
+                    .replace("\\", "\\\\").replace("'", "\\'");
+                String sql = "LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE " + table.tableName
+                    + " CHARACTER SET utf8mb4"
+                    + " FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '\\\\'"
+                    + " LINES TERMINATED BY '\\n'"
+                    + " (" + String.join(", ", table.columns) + ")";
+                long started = System.nanoTime();
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    if (table.ordinal() == 0) {
+                        System.err.println("LOAD DATA LOCAL INFILE failed (" + e.getMessage()
+                            + "), falling back to batched inserts");
+                        return false;
+                    }
+                    throw e;
+                }
+                System.out.printf("Loaded %-14s %8.1f s%n", table.tableName, (System.nanoTime() - started) / 1e9);
+            }
+        }
+        return true;
+    }
+
+    /** Generates straight into the tables with batched inserts, committing every batch. */
+    public void insertBatched(Connection conn) throws IOException, SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        Map<Table, RowSink> sinks = new EnumMap<>(Table.class);
+        try {
+            for (Table table : Table.values()) {
+                String placeholders = String.join(", ", Collections.nCopies(table.columns.length, "?"));
+                sinks.put(table, new BatchSink(conn, conn.prepareStatement("INSERT INTO " + table.tableName
+                    + " (" + String.join(", ", table.columns) + ") VALUES (" + placeholders + ")")));
+            }
+            generate(sinks);
+            closeAll(sinks);
+            conn.commit();
+        } finally {
+            closeAll(sinks);
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void closeAll(Map<Table, RowSink> sinks) throws IOException, SQLException {
+        for (RowSink sink : sinks.values()) {
+            sink.close();
+        }
+        sinks.clear();
+    }
+
+    private void generate(Map<Table, RowSink> sinks) throws IOException, SQLException {
+        long started = System.nanoTime();
+        List<Venue> venues = generateVenues(sinks.get(Table.VENUES), sinks.get(Table.SECTIONS));
+        List<Musical> musicals = generateMusicals(venues, sinks.get(Table.MUSICALS),
+            sinks.get(Table.SHOW_TIMES), sinks.get(Table.MUSICAL_VENUES));
+        generateCustomers(sinks.get(Table.CUSTOMERS));
+        long seats = generateBookings(musicals, sinks.get(Table.RECEIPTS), sinks.get(Table.BOOKED_SEATS),
+            sinks.get(Table.INCOME_DATA));
+        System.out.printf("Generated %d musicals, %d venues, %d customers, %d receipts, %d booked seats in %.1f s%n",
+            musicals.size(), venues.size(), sizes.customers, sizes.receipts, seats,
+            (System.nanoTime() - started) / 1e9);
+    }
+
+    // Each table gets its own stream, so changing one size leaves the other tables alone
+    private SplittableRandom random(Table table) {
+        return new SplittableRandom(seed * 1_000_003L + table.ordinal());
+    }
+
+    private List<Venue> generateVenues(RowSink venueSink, RowSink sectionSink) throws IOException, SQLException {
+        SplittableRandom random = random(Table.VENUES);
+        List<Venue> venues = new ArrayList<>(sizes.venues);
+        int sectionId = 0;
+        for (int id = 1; id <= sizes.venues; id++) {
+            String name = VENUE_WORDS[random.nextInt(VENUE_WORDS.length)] + " "
+                + VENUE_TYPES[random.nextInt(VENUE_TYPES.length)] + " " + id;
+            int sectionCount = 1 + random.nextInt(6);
+            Venue venue = new Venue(id, sectionCount);
+            for (int s = 0; s < sectionCount; s++) {
+                Section section = new Section(++sectionId, SECTION_NAMES[s],
+                    50 + 10 * random.nextInt(76), 4000 + 100 * random.nextInt(141));
+                venue.sections[s] = section;
+                venue.capacity += section.capacity;
+                sectionSink.row(section.id, id, section.name, section.capacity, money(section.basePriceCents));
+            }
+            venueSink.row(id, name, venue.capacity, sectionCount);
+            venues.add(venue);
+        }
+        return venues;
+    }
+
+    private List<Musical> generateMusicals(List<Venue> venues, RowSink musicalSink, RowSink showTimeSink,
+                                           RowSink musicalVenueSink) throws IOException, SQLException {
+        SplittableRandom random = random(Table.MUSICALS);
+        int titles = TITLE_WORDS.length * TITLE_NOUNS.length;
+        List<Musical> musicals = new ArrayList<>(sizes.musicals);
+        int showTimeId = 0;
+        for (int id = 1; id <= sizes.musicals; id++) {
+            // Names must stay unique, the catalog is looked up by name
+            int title = (id - 1) % titles;
+            String name = "The " + TITLE_WORDS[title / TITLE_NOUNS.length] + " " + TITLE_NOUNS[title % TITLE_NOUNS.length];
+            if (id > titles) {
+                name += " " + ((id - 1) / titles + 1);
+            }
+
+            int venueCount = Math.min(venues.size(), 1 + random.nextInt(3));
+            Venue[] playsAt = new Venue[venueCount];
+            int first = random.nextInt(venues.size());
+            int capacity = 0;
+            for (int v = 0; v < venueCount; v++) {
+                playsAt[v] = venues.get((first + v) % venues.size());
+                capacity += playsAt[v].capacity;
+                musicalVenueSink.row(id, playsAt[v].id, money(100 + 5 * random.nextInt(11)));
+            }
+
+            int showTimeCount = 1 + random.nextInt(3);
+            int firstTime = random.nextInt(SHOW_TIMES.length);
+            String[] times = new String[showTimeCount];
+            for (int t = 0; t < showTimeCount; t++) {
+                times[t] = SHOW_TIMES[(firstTime + t * 3) % SHOW_TIMES.length];
+                showTimeSink.row(++showTimeId, id, times[t] + ":00");
+            }
+
+            musicalSink.row(id, name,
+                (1 + random.nextInt(3)) + "h " + (5 * random.nextInt(12)) + "min",
+                pick(random, CATEGORIES, 1 + random.nextInt(3)),
+                AGE_RESTRICTIONS[random.nextInt(AGE_RESTRICTIONS.length)],
+                money(3000 + 100 * random.nextInt(121)),
+                random.nextInt(capacity + 1),
+                pick(random, DAYS, 3 + random.nextInt(5)));
+            musicals.add(new Musical(id, name, playsAt, times));
+        }
+        return musicals;
+    }
+
+    private void generateCustomers(RowSink sink) throws IOException, SQLException {
+        SplittableRandom random = random(Table.CUSTOMERS);
+        LocalDateTime firstSignUp = firstShowDate.minusYears(3).atStartOfDay();
+        long signUpSpan = 3L * 365 * 24 * 3600;
+        for (int id = 1; id <= sizes.customers; id++) {
+            sink.row(id, "customer" + id, "password" + id, "customer" + id + "@example.com",
+                String.format("%010d", random.nextLong(10_000_000_000L)),
+                firstSignUp.plusSeconds(random.nextLong(signUpSpan)));
+        }
+    }
+
+    /**
+     * Receipts with their seats and income rows, as BookingService writes them. Musicals
+     * are visited round-robin, and each visit sells part of one new performance, always
+     * on a later date than that musical's previous one, filling its venue seat by seat.
+     * That keeps booked_seats' unique key satisfied without remembering any seats.
+     */
+    private long generateBookings(List<Musical> musicals, RowSink receiptSink, RowSink seatSink,
+                                  RowSink incomeSink) throws IOException, SQLException {
+        SplittableRandom random = random(Table.RECEIPTS);
+        int averageSeats = (int) Math.max(1, Math.min(50, sizes.bookedSeats / Math.max(1, sizes.receipts)));
+        int[] performancesPerMusical = new int[musicals.size()];
+        StringBuilder details = new StringBuilder();
+        long seatId = 0;
+        int receiptId = 0;
+        int incomeId = 0;
+
+        for (int visit = 0; receiptId < sizes.receipts; visit++) {
+            Musical musical = musicals.get(visit % musicals.size());
+            int round = performancesPerMusical[visit % musicals.size()]++;
+            Venue venue = musical.venues[random.nextInt(musical.venues.length)];
+            LocalDate showDate = firstShowDate.plusDays((musical.id * 7L) % 365 + round);
+            String showTime = musical.showTimes[round % musical.showTimes.length];
+
+            // Sell between a fifth of the house and all of it
+            int toSell = Math.max(1, (int) (venue.capacity * (0.2 + 0.8 * random.nextDouble())));
+            int section = 0;
+            int nextSeat = 1;
+            while (toSell > 0 && receiptId < sizes.receipts) {
+                int seats = Math.min(toSell, 1 + random.nextInt(2 * averageSeats - 1));
+                toSell -= seats;
+                receiptId++;
+
+                long totalCents = 0;
+                details.setLength(0);
+                for (int s = 0; s < seats; s++) {
+                    if (nextSeat > venue.sections[section].capacity) {
+                        section++;
+                        nextSeat = 1;
+                    }
+                    Section seatSection = venue.sections[section];
+                    String seatNumber = seatSection.name + nextSeat++;
+                    String ticketType = TICKET_TYPES[random.nextInt(TICKET_TYPES.length)];
+                    long priceCents = Math.round(BookingService.calculatePrice(seatSection.basePriceCents / 100.0, ticketType, 1) * 100);
+                    totalCents += priceCents;
+                    details.append(ticketType).append(" ticket - Seat ").append(seatNumber)
+                        .append(": £").append(money(priceCents)).append('\n');
+                    seatSink.row(++seatId, musical.id, venue.id, seatSection.id, seatNumber, showDate, showTime, receiptId);
+                }
+
+                LocalDateTime bookedAt = showDate.atStartOfDay()
+                    .minusDays(random.nextInt(60))
+                    .minusSeconds(random.nextInt(24 * 3600));
+                receiptSink.row(receiptId, 1 + random.nextInt(sizes.customers), musical.id, money(totalCents),
+                    showDate, showTime, details.toString(), bookedAt);
+                if (incomeId < sizes.incomeRows) {
+                    incomeSink.row(++incomeId, money(totalCents), showDate, "Ticket Sales",
+                        "Booking for " + musical.name, bookedAt);
+                }
+            }
+        }
+
+        // Any income beyond one row per booking is sales outside the box office
+        SplittableRandom incomeRandom = random(Table.INCOME_DATA);
+        while (incomeId < sizes.incomeRows) {
+            LocalDate date = firstShowDate.plusDays(incomeRandom.nextInt(365));
+            incomeSink.row(++incomeId, money(500 + incomeRandom.nextInt(20_000)), date,
+                OTHER_INCOME[incomeRandom.nextInt(OTHER_INCOME.length)], "Sales", date.atTime(12, 0));
+        }
+        return seatId;
+    }
+
+    // count distinct entries of values, kept in their original order
+    private static String pick(SplittableRandom random, String[] values, int count) {
+        boolean[] chosen = new boolean[values.length];
+        for (int picked = 0; picked < Math.min(count, values.length); ) {
+            int i = random.nextInt(values.length);
+            if (!chosen[i]) {
+                chosen[i] = true;
+                picked++;
+            }
+        }
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (chosen[i]) {
+                if (joined.length() > 0) joined.append(',');
+                joined.append(values[i]);
+            }
+        }
+        return joined.toString();
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static final class Sizes {
+        private final int musicals;
+        private final int venues;
+        private final int customers;
+        private final int receipts;
+        private final long bookedSeats;
+        private final int incomeRows;
+
+        public Sizes(int musicals, int venues, int customers, int receipts, long bookedSeats, int incomeRows) {
+            if (musicals < 1 || venues < 1 || customers < 1) {
+                throw new IllegalArgumentException("Need at least one musical, venue and customer");
+            }
+            this.musicals = musicals;
+            this.venues = venues;
+            this.customers = customers;
+            this.receipts = Math.max(0, receipts);
+            this.bookedSeats = Math.max(receipts, bookedSeats);
+            this.incomeRows = Math.max(0, incomeRows);
+        }
+
+        // The full scale test: 10k musicals, 500 venues, 1M customers, 2M bookings of 10M seats
+        public static Sizes full() {
+            return new Sizes(10_000, 500, 1_000_000, 2_000_000, 10_000_000, 2_000_000);
+        }
+
+        public Sizes scaled(double factor) {
+            return new Sizes(scale(musicals, factor), scale(venues, factor), scale(customers, factor),
+                scale(receipts, factor), Math.max(1, Math.round(bookedSeats * factor)), scale(incomeRows, factor));
+        }
+
+        private static int scale(int size, double factor) {
+            return (int) Math.max(1, Math.round(size * factor));
+        }
+
+        public int getMusicals() { return musicals; }
+        public int getVenues() { return venues; }
+        public int getCustomers() { return customers; }
+        public int getReceipts() { return receipts; }
+        public long getBookedSeats() { return bookedSeats; }
+        public int getIncomeRows() { return incomeRows; }
+
+        @Override
+        public String toString() {
+            return String.format("%,d musicals, %,d venues, %,d customers, %,d receipts, ~%,d booked seats, %,d income rows",
+                musicals, venues, customers, receipts, bookedSeats, incomeRows);
+        }
+    }
+
+    private static final class Venue {
+        final int id;
+        final Section[] sections;
+        int capacity;
+
+        Venue(int id, int sectionCount) {
+            this.id = id;
+            this.sections = new Section[sectionCount];
+        }
+    }
+
+    private static final class Section {
+        final int id;
+        final String name;
+        final int capacity;
+        final long basePriceCents;
+
+        Section(int id, String name, int capacity, long basePriceCents) {
+            this.id = id;
+            this.name = name;
+            this.capacity = capacity;
+            this.basePriceCents = basePriceCents;
+        }
+    }
+
+    private static final class Musical {
+        final int id;
+        final String name;
+        final Venue[] venues;
+        final String[] showTimes;
+
+        Musical(int id, String name, Venue[] venues, String[] showTimes) {
+            this.id = id;
+            this.name = name;
+            this.venues = venues;
+            this.showTimes = showTimes;
+        }
+    }
+
+    private interface RowSink {
+        void row(Object... values) throws IOException, SQLException;
+
+        void close() throws IOException, SQLException;
+    }
+
+    // Quoted strings with backslash escapes and \N for null, matching the LOAD DATA clauses in loadCsv
+    private static final class CsvSink implements RowSink {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        CsvSink(BufferedWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) line.append(',');
+                append(values[i]);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+
+        private void append(Object value) {
+            if (value == null) {
+                line.append("\\N");
+            } else if (value instanceof Number) {
+                line.append(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+            } else if (value instanceof LocalDateTime) {
+                line.append(TIMESTAMP.format((LocalDateTime) value));
+            } else if (value instanceof LocalDate) {
+                line.append(value);
+            } else {
+                String text = value.toString();
+                line.append('"');
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    switch (c) {
+                        case '"' -> line.append("\\\"");
+                        case '\\' -> line.append("\\\\");
+                        case '\n' -> line.append("\\n");
+                        case '\r' -> line.append("\\r");
+                        default -> line.append(c);
+                    }
+                }
+                line.append('"');
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class BatchSink implements RowSink {
+        private final Connection conn;
+        private final PreparedStatement insert;
+        private int pending = 0;
+        private boolean closed = false;
+
+        BatchSink(Connection conn, PreparedStatement insert) {
+            this.conn = conn;
+            this.insert = insert;
+        }
+
+        @Override
+        public void row(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                insert.setObject(i + 1, values[i]);
+            }
+            insert.addBatch();
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending > 0) {
+                insert.executeBatch();
+                conn.commit();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!closed) {
+                closed = true;
+                try {
+                    flush();
+                } finally {
+                    insert.close();
+                }
+            }
+        }
+    }
+
+    private static final class Options {
+        static final String USAGE = """
+            Usage: DatasetGenerator [options]
+              --scale=F          multiply the full-size defaults by F (default 1)
+              --musicals=N       default 10000
+              --venues=N         default 500
+              --customers=N      default 1000000
+              --receipts=N       default 2000000
+              --booked-seats=N   default 10000000, spread over the receipts
+              --income=N         default 2000000
+              --seed=N           random seed (default 42)
+              --out=DIR          directory for the CSV files (default dataset)
+              --load             load into the database at -Ddb.url instead of only writing CSV
+              --replace          with --load, truncate the generated tables first
+              --batch            with --load, use batched inserts instead of LOAD DATA LOCAL INFILE""";
+
+        Sizes sizes = Sizes.full();
+        long seed = 42;
+        Path out = Paths.get("dataset");
+        boolean load = false;
+        boolean replace = false;
+        boolean batch = false;
+        boolean help = false;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            double scale = 1;
+            Map<String, Long> counts = new HashMap<>();
+            for (String arg : args) {
+                switch (arg) {
+                    case "--help", "-h" -> options.help = true;
+                    case "--load" -> options.load = true;
+                    case "--replace" -> options.replace = true;
+                    case "--batch" -> options.batch = true;
+                    default -> {
+                        int eq = arg.indexOf('=');
+                        if (!arg.startsWith("--") || eq < 0) {
+                            throw new IllegalArgumentException("Unrecognised argument: " + arg);
+                        }
+                        String name = arg.substring(2, eq).toLowerCase(Locale.ROOT);
+                        String value = arg.substring(eq + 1);
+                        try {
+                            switch (name) {
+                                case "scale" -> scale = Double.parseDouble(value);
+                                case "seed" -> options.seed = Long.parseLong(value);
+                                case "out" -> options.out = Paths.get(value);
+                                case "musicals", "venues", "customers", "receipts", "booked-seats", "income" ->
+                                    counts.put(name, Long.parseLong(value));
+                                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                            }
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Bad value for --" + name + ": " + value);
+                        }
+                    }
+                }
+            }
+            if (scale <= 0) {
+                throw new IllegalArgumentException("--scale must be greater than 0");
+            }
+            Sizes scaled = Sizes.full().scaled(scale);
+            options.sizes = new Sizes(
+                counts.getOrDefault("musicals", (long) scaled.musicals).intValue(),
+                counts.getOrDefault("venues", (long) scaled.venues).intValue(),
+                counts.getOrDefault("customers", (long) scaled.customers).intValue(),
+                counts.getOrDefault("receipts", (long) scaled.receipts).intValue(),
+                counts.getOrDefault("booked-seats", scaled.bookedSeats),
+                counts.getOrDefault("income", (long) scaled.incomeRows).intValue());
+            return options;
+        }
+    }
+}
@@ -140,6 +140,12 @@ public class DateTimeSelector extends JPanel {
         return LocalDateTime.of(date, time);
     }
     
+    // Runs whenever the date or time changes, including through reset() and updateSettings()
+    public void addChangeListener(Runnable listener) {
+        datePicker.getModel().addChangeListener(e -> listener.run());
+        timeSpinner.addChangeListener(e -> listener.run());
+    }
+
     public void updateSettings(String availableDays, String runtime) {
         // Reset time spinner
         Calendar calendar = Calendar.getInstance();
@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.HashSet;
 import java.util.Set;
 import javax.imageio.ImageIO;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -29,6 +31,8 @@ public class FinalGUI {
     private static JPanel welcomePanel;
     private static JPanel contentPanel;
     private static boolean isShowingSchedule = false;
+    private static SeatHoldManager.SeatHold currentSeatHold;
+    private static BookingService bookingService;
 
     public static void main(String[] args) {
         try {
@@ -37,6 +41,7 @@ public class FinalGUI {
             
             // Initialize data handler
             dataHandler = new MusicalDataHandler();
+            bookingService = new BookingService(dataHandler);
             
             // Create the main frame
             JFrame frame = new JFrame("Musical Theater Tickets");
@@ -158,15 +163,19 @@ public class FinalGUI {
         JButton customerManagementBtn = new JButton("Customer Management");
         JButton staffManagementBtn = new JButton("Staff Management");
         JButton venueManagementBtn = new JButton("Venue Management");
+        JButton performanceBtn = new JButton("Performance");
         JButton logoutBtn = new JButton("Logout");
+        // Query timings are for admins only
+        boolean isAdmin = "ADMIN".equals(userRole);
 
         // Style buttons
         Dimension buttonSize = new Dimension(180, 40);    
         Component[] buttons = {dashboardBtn, manageMusicalBtn, addMusicalBtn, 
                              editMusicalBtn, deleteMusicalBtn, venueManagementBtn, 
-                             viewBookingsBtn, customerManagementBtn, staffManagementBtn, logoutBtn};
+                             viewBookingsBtn, customerManagementBtn, staffManagementBtn, performanceBtn, logoutBtn};
 
         for (Component btn : buttons) {
+            if (btn == performanceBtn && !isAdmin) continue;
             btn.setMaximumSize(buttonSize);
             btn.setPreferredSize(buttonSize);
             sideMenu.add(btn);
@@ -183,6 +192,9 @@ public class FinalGUI {
         contentPanel.add(new StaffManagementPanel(dataHandler), "StaffManagement");
         contentPanel.add(new VenueManagementPanel(dataHandler), "VenueManagement");
         contentPanel.add(new BookingHistoryPanel(dataHandler), "ViewBookings");
+        if (isAdmin) {
+            contentPanel.add(new PerformancePanel(), "Performance");
+        }
 
         // Add action listeners
         dashboardBtn.addActionListener(e -> contentLayout.show(contentPanel, "Dashboard"));
@@ -191,6 +203,7 @@ public class FinalGUI {
         staffManagementBtn.addActionListener(e -> contentLayout.show(contentPanel, "StaffManagement"));
         venueManagementBtn.addActionListener(e -> contentLayout.show(contentPanel, "VenueManagement"));
         viewBookingsBtn.addActionListener(e -> contentLayout.show(contentPanel, "ViewBookings"));
+        performanceBtn.addActionListener(e -> contentLayout.show(contentPanel, "Performance"));
         addMusicalBtn.addActionListener(e -> showAddMusicalDialog());
         editMusicalBtn.addActionListener(e -> showEditMusicalDialog());
         deleteMusicalBtn.addActionListener(e -> showDeleteMusicalDialog());
@@ -298,6 +311,7 @@ public class FinalGUI {
     }
 
 
+    @SuppressWarnings("try")
     private static void showAddMusicalDialog() {
         JDialog dialog = new JDialog((Frame)null, "Add New Musical", true);
         dialog.setLayout(new GridBagLayout());
@@ -320,8 +334,8 @@ public class FinalGUI {
         venueList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         // Populate venue list
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("listVenues");
+             Connection conn = MusicalDataHandler.getConnection()) {
             String query = "SELECT id, name, total_capacity FROM venues";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -332,6 +346,7 @@ public class FinalGUI {
                 venueListModel.addElement(venueDisplay);
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("listVenues");
             e.printStackTrace();
         }
 
@@ -388,12 +403,13 @@ public class FinalGUI {
     
     
     
+    @SuppressWarnings("try")
     private static void saveNewMusicalWithVenues(String name, String runTime,
         String categories, String ageRestriction, double price,
         int availableTickets, String availableDays, List<String> selectedVenues) {
 
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("addMusical");
+             Connection conn = MusicalDataHandler.getConnection()) {
 
             conn.setAutoCommit(false);
             try {
@@ -440,6 +456,7 @@ public class FinalGUI {
                     }
 
                     conn.commit();
+                    dataHandler.invalidateMusical(name.trim());
                     JOptionPane.showMessageDialog(null, "Musical added successfully!");
                 }
             } catch (SQLException ex) {
@@ -447,18 +464,20 @@ public class FinalGUI {
                 throw ex;
             }
         } catch (SQLException ex) {
+            QueryMetrics.recordError("addMusical");
             ex.printStackTrace();
             JOptionPane.showMessageDialog(null, "Error adding musical: " + ex.getMessage());
         }
     }
 
 
+    @SuppressWarnings("try")
     private static void updateMusicalWithVenues(String oldName, String name, String runTime,
         String categories, String ageRestriction, double price, 
         int availableTickets, String availableDays, List<String> selectedVenues) {
 
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateMusical");
+             Connection conn = MusicalDataHandler.getConnection()) {
             conn.setAutoCommit(false);
             try {
                 // Update musical
@@ -503,12 +522,15 @@ public class FinalGUI {
                 }
 
                 conn.commit();
+                dataHandler.invalidateMusical(oldName);
+                dataHandler.invalidateMusical(name);
                 JOptionPane.showMessageDialog(null, "Musical updated successfully!");
             } catch (SQLException ex) {
                 conn.rollback();
                 throw ex;
             }
         } catch (SQLException ex) {
+            QueryMetrics.recordError("updateMusical");
             ex.printStackTrace();
             JOptionPane.showMessageDialog(null, "Error updating musical: " + ex.getMessage());
         }
@@ -610,6 +632,7 @@ public class FinalGUI {
     }
 
     
+    @SuppressWarnings("try")
     private static void showEditMusicalDialog() {
         JDialog selectionDialog = new JDialog((Frame)null, "Select Musical to Edit", true);
         selectionDialog.setLayout(new BorderLayout(10, 10));
@@ -621,7 +644,8 @@ public class FinalGUI {
         musicalList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Populate list with musical names
-        try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("listMusicalNames");
+             Connection conn = MusicalDataHandler.getConnection()) {
             String query = "SELECT name FROM musicals";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -630,6 +654,7 @@ public class FinalGUI {
                 listModel.addElement(rs.getString("name"));
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("listMusicalNames");
             e.printStackTrace();
         }
 
@@ -655,6 +680,7 @@ public class FinalGUI {
         selectionDialog.setVisible(true);
     }
 
+    @SuppressWarnings("try")
     private static void showEditForm(String musicalName) {
         JDialog editDialog = new JDialog((Frame)null, "Edit Musical: " + musicalName, true);
         editDialog.setLayout(new GridBagLayout());
@@ -677,7 +703,8 @@ public class FinalGUI {
         venueList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         // Load current musical data and populate venue list
-        try (Connection conn = DriverManager.getConnection(dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("loadMusicalForEdit");
+             Connection conn = MusicalDataHandler.getConnection()) {
             // Load musical data
             String musicalQuery = "SELECT * FROM musicals WHERE name = ?";
             PreparedStatement pstmt = conn.prepareStatement(musicalQuery);
@@ -725,6 +752,7 @@ public class FinalGUI {
             venueList.setSelectedIndices(selectedIndices.stream().mapToInt(i -> i).toArray());
 
         } catch (SQLException e) {
+            QueryMetrics.recordError("loadMusicalForEdit");
             e.printStackTrace();
         }
 
@@ -777,6 +805,7 @@ public class FinalGUI {
         editDialog.setVisible(true);
     }
 
+    @SuppressWarnings("try")
     private static void showDeleteMusicalDialog() {
         JDialog deleteDialog = new JDialog((Frame)null, "Delete Musical", true);
         deleteDialog.setLayout(new BorderLayout(10, 10));
@@ -788,7 +817,8 @@ public class FinalGUI {
         musicalList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Populate list with musical names
-        try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("listMusicalNames");
+             Connection conn = MusicalDataHandler.getConnection()) {
             String query = "SELECT name FROM musicals";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -797,6 +827,7 @@ public class FinalGUI {
                 listModel.addElement(rs.getString("name"));
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("listMusicalNames");
             e.printStackTrace();
         }
 
@@ -820,19 +851,22 @@ public class FinalGUI {
                 );
 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    try (Connection conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
+                    try (QueryMetrics.Timer timer = QueryMetrics.time("deleteMusical");
+                         Connection conn = MusicalDataHandler.getConnection()) {
                         String deleteQuery = "DELETE FROM musicals WHERE name = ?";
                         PreparedStatement pstmt = conn.prepareStatement(deleteQuery);
                         pstmt.setString(1, selectedMusical);
 
                         int result = pstmt.executeUpdate();
                         if (result > 0) {
+                            dataHandler.invalidateMusical(selectedMusical);
                             listModel.removeElement(selectedMusical);
                             JOptionPane.showMessageDialog(deleteDialog, "Musical deleted successfully!");
                         } else {
                             JOptionPane.showMessageDialog(deleteDialog, "Failed to delete musical.");
                         }
                     } catch (SQLException ex) {
+                        QueryMetrics.recordError("deleteMusical");
                         ex.printStackTrace();
                         JOptionPane.showMessageDialog(deleteDialog, "Error deleting musical: " + ex.getMessage());
                     }
@@ -985,10 +1019,8 @@ public class FinalGUI {
 
     private static void updateMusicalCards(JPanel cardsPanel, String category) {
         cardsPanel.removeAll();
-        for (MusicalDataHandler.Musical musical : dataHandler.getMusicals()) {
-            if (category.equals("All") || musical.getCategories().contains(category)) {
-                cardsPanel.add(createMusicalCard(musical));
-            }
+        for (MusicalDataHandler.Musical musical : musicalsInCategory(category)) {
+            cardsPanel.add(createMusicalCard(musical));
         }
         cardsPanel.revalidate();
         cardsPanel.repaint();
@@ -1109,7 +1141,7 @@ public class FinalGUI {
     // Method to retrieve all musicals in text format
     private static String getAllMusicalsText() {
         StringBuilder musicalsText = new StringBuilder();
-        for (MusicalDataHandler.Musical musical : dataHandler.musicals) {
+        for (MusicalDataHandler.Musical musical : dataHandler.getMusicals()) {
             musicalsText.append(formatMusicalInfo(musical)).append("\n\n");
         }
         return musicalsText.toString();
@@ -1118,43 +1150,33 @@ public class FinalGUI {
     // Method to filter musicals by category
     private static String filterMusicalsByCategory(String category) {
         StringBuilder filteredText = new StringBuilder();
-        for (MusicalDataHandler.Musical musical : dataHandler.musicals) {
-            if (musical.getCategories().contains(category)) {
-                filteredText.append(formatMusicalInfo(musical)).append("\n\n");
-            }
+        for (MusicalDataHandler.Musical musical : musicalsInCategory(category)) {
+            filteredText.append(formatMusicalInfo(musical)).append("\n\n");
         }
         return filteredText.length() > 0 ? filteredText.toString() : "No musicals found for this category.";
     }
+
+    // Looked up in the current catalog snapshot's category index, "All" matches everything
+    private static List<MusicalDataHandler.Musical> musicalsInCategory(String category) {
+        MusicalCatalog.Snapshot catalog = dataHandler.getCatalogSnapshot();
+        if (category == null || category.equals("All")) {
+            return catalog.getMusicals();
+        }
+        return catalog.select(catalog.getCategoryIndex().matching(category));
+    }
     
     private static void showFilteredSchedule(String category) {
         StringBuilder scheduleText = new StringBuilder("Show Schedule:\n\n");
-        try (Connection conn = DriverManager.getConnection(
-                MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS)) {
-            String query = "SELECT m.*, GROUP_CONCAT(v.name) as venues " +
-                          "FROM musicals m " +
-                          "LEFT JOIN musical_venues mv ON m.id = mv.musical_id " +
-                          "LEFT JOIN venues v ON mv.venue_id = v.id " +
-                          "WHERE ? = 'All' OR m.categories LIKE ? " +
-                          "GROUP BY m.id";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, category);
-            pstmt.setString(2, "%" + category + "%");
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                scheduleText.append("Musical: ").append(rs.getString("name"))
-                    .append("\nPrice: £").append(String.format("%.2f", rs.getDouble("price")))
-                    .append("\nAvailable Days: ").append(rs.getString("available_days"));
-
-                String venues = rs.getString("venues");
-                if (venues != null && !venues.isEmpty()) {
-                    scheduleText.append("\nVenues: ").append(venues);
-                }
-                scheduleText.append("\n\n");
+        for (MusicalDataHandler.Musical musical : musicalsInCategory(category)) {
+            scheduleText.append("Musical: ").append(musical.getName())
+                .append("\nPrice: £").append(String.format("%.2f", musical.getPrice()))
+                .append("\nAvailable Days: ").append(musical.getAvailableDays());
+
+            List<String> venues = dataHandler.getVenueNamesForMusical(musical.getId());
+            if (!venues.isEmpty()) {
+                scheduleText.append("\nVenues: ").append(String.join(",", venues));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            scheduleText.append("Error loading schedule data.");
+            scheduleText.append("\n\n");
         }
 
         musicalTextArea.setText(scheduleText.toString());
@@ -1183,7 +1205,7 @@ public class FinalGUI {
             musical.getAgeRestriction(), musical.getPrice()));
 
         // Add venue information
-        List<String> venues = getVenuesForMusical(musical.getId());
+        List<String> venues = dataHandler.getVenueNamesForMusical(musical.getId());
         if (!venues.isEmpty()) {
             info.append("Venues: ").append(String.join(", ", venues)).append("\n");
         }
@@ -1191,39 +1213,12 @@ public class FinalGUI {
         return info.toString();
     }
 
-    private static List<String> getVenuesForMusical(int musicalId) {
-        List<String> venues = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
-            String query = "SELECT v.name FROM venues v " +
-                          "JOIN musical_venues mv ON v.id = mv.venue_id " +
-                          "WHERE mv.musical_id = ?";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setInt(1, musicalId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                venues.add(rs.getString("name"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return venues;
-    }
-
-
-    // Method to retrieve unique categories from the CSV
+    // Method to retrieve unique categories for the dropdown, straight from the category index
     private static String[] getUniqueCategories() {
-        Set<String> categoriesSet = new HashSet<>();
-        categoriesSet.add("All");  // Add "All" option for no filter
-
-        for (MusicalDataHandler.Musical musical : dataHandler.musicals) {
-            // Split categories by comma and add to the set
-            String[] categories = musical.getCategories().split(", ");
-            categoriesSet.addAll(Arrays.asList(categories));
-        }
-
-        // Convert the set to a sorted array for the dropdown
-        return categoriesSet.toArray(new String[0]);
+        List<String> categories = new ArrayList<>();
+        categories.add("All");  // Add "All" option for no filter
+        categories.addAll(dataHandler.getCatalogSnapshot().getCategoryIndex().getCategories());
+        return categories.toArray(new String[0]);
     }
 
     // Method to create the Booking Panel (booking GUI)
@@ -1287,22 +1282,6 @@ public class FinalGUI {
         // List to store ticket selections
         List<JPanel> ticketSelections = new ArrayList<>();
 
-        // Add initial ticket selection row
-        JButton addTicketButton = new JButton("Add Another Ticket Type");
-        addTicketButton.addActionListener(e -> {
-            JPanel ticketRow = createTicketSelectionRow();
-            ticketSelections.add(ticketRow);
-            ticketPanel.add(ticketRow);
-            ticketPanel.revalidate();
-            ticketPanel.repaint();
-        });
-
-        // Add first ticket row
-        JPanel firstTicketRow = createTicketSelectionRow();
-        ticketSelections.add(firstTicketRow);
-        ticketPanel.add(firstTicketRow);
-        ticketPanel.add(addTicketButton);
-
         // Button panel
         JPanel buttonPanel = new JPanel();
         JButton continueToSeatsButton = new JButton("Continue to Seat Selection");
@@ -1320,6 +1299,37 @@ public class FinalGUI {
 
         List<MusicalDataHandler.BookedSeat> selectedSeats = new ArrayList<>();
 
+        // Held seats belong to one performance and ticket count, changing either drops them
+        Runnable seatSelectionChanged = () -> {
+            if (selectedSeats.isEmpty() && currentSeatHold == null) {
+                return;
+            }
+            releaseSeatHold();
+            selectedSeats.clear();
+            seatInfoTextArea.setText("");
+            seatInfoScroll.setVisible(false);
+            continueToSeatsButton.setVisible(true);
+            bookTicketsButton.setVisible(false);
+        };
+        dateTimeSelector.addChangeListener(seatSelectionChanged);
+
+        // Add initial ticket selection row
+        JButton addTicketButton = new JButton("Add Another Ticket Type");
+        addTicketButton.addActionListener(e -> {
+            JPanel ticketRow = createTicketSelectionRow(seatSelectionChanged);
+            ticketSelections.add(ticketRow);
+            ticketPanel.add(ticketRow);
+            ticketPanel.revalidate();
+            ticketPanel.repaint();
+        });
+
+        // Add first ticket row
+        JPanel firstTicketRow = createTicketSelectionRow(seatSelectionChanged);
+        ticketSelections.add(firstTicketRow);
+        ticketPanel.add(firstTicketRow);
+        ticketPanel.add(addTicketButton);
+
+
         // Update available tickets display and DateTimeSelector when musical changes
         musicalDropdown.addActionListener(e -> {
             String selected = (String)musicalDropdown.getSelectedItem();
@@ -1337,12 +1347,13 @@ public class FinalGUI {
                 // Reset ticket selections
                 ticketPanel.removeAll();
                 ticketSelections.clear();
-                JPanel newTicketRow = createTicketSelectionRow();
+                JPanel newTicketRow = createTicketSelectionRow(seatSelectionChanged);
                 ticketSelections.add(newTicketRow);
                 ticketPanel.add(newTicketRow);
                 ticketPanel.add(addTicketButton);
 
                 // Reset seat selections
+                releaseSeatHold();
                 selectedSeats.clear();
                 seatInfoTextArea.setText("");
                 seatInfoScroll.setVisible(false);
@@ -1396,6 +1407,21 @@ public class FinalGUI {
                     return;
                 }
 
+                // Hold the seats until the booking is made or the hold expires
+                releaseSeatHold();
+                MusicalDataHandler.Musical musical = dataHandler.getMusicalByName(musicalName);
+                SeatHoldManager.HoldResult holdResult = dataHandler.getSeatHoldManager().hold(
+                    musical.getId(), selectedDateTime.toLocalDate(),
+                    selectedDateTime.format(DateTimeFormatter.ofPattern("HH:mm")), seats);
+                if (!holdResult.isHeld()) {
+                    JOptionPane.showMessageDialog(seatDialog,
+                        "Sorry, these seats have just been taken by someone else: " +
+                        String.join(", ", holdResult.getConflictingSeats()) +
+                        "\nPlease choose different seats.");
+                    return;
+                }
+                currentSeatHold = holdResult.getHold();
+
                 selectedSeats.clear();
                 selectedSeats.addAll(seats);
                 updateSelectedSeatsDisplay(selectedSeats);
@@ -1432,8 +1458,28 @@ public class FinalGUI {
                 JOptionPane.showMessageDialog(null, "Error: Musical not found.");
                 return;
             }
+            if (calculateTotalTickets(ticketSelections) != selectedSeats.size()) {
+                seatSelectionChanged.run();
+                JOptionPane.showMessageDialog(null, "The number of tickets has changed, please choose your seats again.");
+                return;
+            }
+
+            // The hold is handed over to the booking whether or not it succeeds
+            SeatHoldManager.SeatHold hold = currentSeatHold;
+            currentSeatHold = null;
+            BookingService.BookingRequest request = createBookingRequest(currentMusical, selectedDateTime,
+                ticketSelections, selectedSeats, hold);
+
+            // The transaction runs off the EDT, the result comes back on it
+            bookTicketsButton.setEnabled(false);
+            bookingPanel.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            AsyncDataAccess.submit(() -> bookingService.book(request), result -> {
+                bookTicketsButton.setEnabled(true);
+                bookingPanel.setCursor(null);
+                if (!showBookingResult(currentMusical, selectedDateTime, result)) {
+                    return;
+                }
 
-            if (processBooking(currentMusical, selectedDateTime, ticketSelections, selectedSeats)) {
                 // Reset UI
                 selectedSeats.clear();
                 seatInfoTextArea.setText("");
@@ -1450,7 +1496,7 @@ public class FinalGUI {
                 // Reset ticket selections
                 ticketPanel.removeAll();
                 ticketSelections.clear();
-                JPanel newTicketRow = createTicketSelectionRow();
+                JPanel newTicketRow = createTicketSelectionRow(seatSelectionChanged);
                 ticketSelections.add(newTicketRow);
                 ticketPanel.add(newTicketRow);
                 ticketPanel.add(addTicketButton);
@@ -1464,7 +1510,11 @@ public class FinalGUI {
 
                 ticketPanel.revalidate();
                 ticketPanel.repaint();
-            }
+            }, error -> {
+                bookTicketsButton.setEnabled(true);
+                bookingPanel.setCursor(null);
+                JOptionPane.showMessageDialog(null, "Booking failed: " + error.getMessage());
+            });
         });
 
 
@@ -1473,8 +1523,8 @@ public class FinalGUI {
             // Reset all form elements
             resetBookingForm(musicalDropdown, dateTimeSelector, ticketPanel, 
                             ticketSelections, addTicketButton, seatInfoScroll, 
-                            continueToSeatsButton, bookTicketsButton, ticketsCountLabel
-                            );
+                            continueToSeatsButton, bookTicketsButton, ticketsCountLabel,
+                            seatSelectionChanged);
 
             cardLayout.show(mainPanel, "MusicalListPanel");
         });
@@ -1500,7 +1550,10 @@ public class FinalGUI {
                                    JScrollPane seatInfoScroll,
                                    JButton continueToSeatsButton,
                                    JButton bookTicketsButton,
-                                   JLabel ticketsCountLabel) {
+                                   JLabel ticketsCountLabel,
+                                   Runnable onTicketCountChange) {
+        releaseSeatHold();
+
         // Reset musical selection
         musicalDropdown.setSelectedIndex(0);
 
@@ -1510,7 +1563,7 @@ public class FinalGUI {
         // Reset ticket selections
         ticketPanel.removeAll();
         ticketSelections.clear();
-        JPanel newTicketRow = createTicketSelectionRow();
+        JPanel newTicketRow = createTicketSelectionRow(onTicketCountChange);
         ticketSelections.add(newTicketRow);
         ticketPanel.add(newTicketRow);
         ticketPanel.add(addTicketButton);
@@ -1614,6 +1667,10 @@ public class FinalGUI {
 
         seatInfo.append("------------------\n");
         seatInfo.append(String.format("Total Price:    £%6.2f\n", totalPrice));
+        if (currentSeatHold != null) {
+            seatInfo.append(String.format("\nSeats held for %d minutes\n",
+                currentSeatHold.getTtlSeconds() / 60));
+        }
 
         seatInfoTextArea.setText(seatInfo.toString());
         seatInfoTextArea.setVisible(true);
@@ -1633,6 +1690,7 @@ public class FinalGUI {
             return false;
         }
 
+        // Cached count, kept current by BookingService; the booking itself re-checks atomically
         MusicalDataHandler.Musical musical = dataHandler.getMusicalByName(musicalName);
         if (musical == null) {
             JOptionPane.showMessageDialog(null, "Musical not found.");
@@ -1647,11 +1705,7 @@ public class FinalGUI {
         String selectedDay = selectedDateTime.getDayOfWeek().toString();
         String availableDaysStr = musical.getAvailableDays().replace("\"", "");
 
-        // Convert both to uppercase for comparison
-        if (!Arrays.stream(availableDaysStr.split(","))
-                .map(String::trim)
-                .map(String::toUpperCase)
-                .anyMatch(day -> day.equals(selectedDay.toUpperCase()))) {
+        if (!isShowDay(availableDaysStr, selectedDay)) {
             JOptionPane.showMessageDialog(null,
                 "This show is not available on " + selectedDay + ".\n" +
                 "Available days are: " + availableDaysStr);
@@ -1661,108 +1715,70 @@ public class FinalGUI {
         return true;
     }
 
+    // Convert both to uppercase for comparison
+    private static boolean isShowDay(String availableDays, String selectedDay) {
+        return Arrays.stream(availableDays.split(","))
+            .map(String::trim)
+            .map(String::toUpperCase)
+            .anyMatch(day -> day.equals(selectedDay.toUpperCase()));
+    }
 
     
-    private static boolean processBooking(MusicalDataHandler.Musical musical,
+    // Reads the ticket rows on the EDT; the seats are assigned ticket types in selection order
+    private static BookingService.BookingRequest createBookingRequest(MusicalDataHandler.Musical musical,
                                     LocalDateTime showDateTime,
                                     List<JPanel> ticketSelections,
-                                    List<MusicalDataHandler.BookedSeat> selectedSeats) {
-        Connection conn = null;
-        try {
-            conn = DriverManager.getConnection(MusicalDataHandler.DB_URL, MusicalDataHandler.USER, MusicalDataHandler.PASS);
-            conn.setAutoCommit(false);
-
-            // Calculate total price and build receipt details
-            double totalPrice = 0;
-            StringBuilder receiptDetails = new StringBuilder();
-            int seatIndex = 0;
-
-            for (JPanel ticketRow : ticketSelections) {
-                JComboBox<?> typeDropdown = (JComboBox<?>) ticketRow.getComponent(1);
-                JTextField countField = (JTextField) ticketRow.getComponent(3);
-                String ticketType = (String) typeDropdown.getSelectedItem();
-                int count = Integer.parseInt(countField.getText());
-
-                for (int i = 0; i < count; i++) {
-                    MusicalDataHandler.BookedSeat seat = selectedSeats.get(seatIndex++);
-                    double seatPrice = calculatePrice(seat.getPrice(), ticketType, 1);
-                    totalPrice += seatPrice;
-                    receiptDetails.append(String.format("%s ticket - Seat %s: £%.2f\n",
-                        ticketType, seat.getSeatNumber(), seatPrice));
-                }
+                                    List<MusicalDataHandler.BookedSeat> selectedSeats,
+                                    SeatHoldManager.SeatHold hold) {
+        List<BookingService.SeatTicket> tickets = new ArrayList<>(selectedSeats.size());
+        int seatIndex = 0;
+        for (JPanel ticketRow : ticketSelections) {
+            JComboBox<?> typeDropdown = (JComboBox<?>) ticketRow.getComponent(1);
+            JTextField countField = (JTextField) ticketRow.getComponent(3);
+            String ticketType = (String) typeDropdown.getSelectedItem();
+            int count;
+            try {
+                count = Integer.parseInt(countField.getText());
+            } catch (NumberFormatException e) {
+                count = 0; // Counted as none by calculateTotalTickets too
             }
-
-            // Insert receipt record
-            String receiptQuery = "INSERT INTO receipts (customer_id, musical_id, total_price, show_date, show_time, receipt_text) VALUES (?, ?, ?, ?, ?, ?)";
-            PreparedStatement receiptStmt = conn.prepareStatement(receiptQuery, Statement.RETURN_GENERATED_KEYS);
-            
-            // Format the data to be inserted
-            int customerId = dataHandler.getCustomerId(currentUser);
-            receiptStmt.setInt(1, customerId);                                                              // Customer ID
-            receiptStmt.setInt(2, musical.getId());                                                         // Musical ID
-            receiptStmt.setDouble(3, totalPrice);                                                           // Total Price
-            receiptStmt.setDate(4, java.sql.Date.valueOf(showDateTime.toLocalDate()));                      // Show Date
-            receiptStmt.setString(5, showDateTime.format(DateTimeFormatter.ofPattern("HH:mm")));    // Show time
-            receiptStmt.setString(6, receiptDetails.toString());                                            // Receipt Text
-            
-            receiptStmt.executeUpdate();
-            ResultSet rs = receiptStmt.getGeneratedKeys();
-            
-            int receiptId = 0;
-            if (rs.next()) {
-                receiptId = rs.getInt(1);
+            for (int i = 0; i < count; i++) {
+                tickets.add(new BookingService.SeatTicket(selectedSeats.get(seatIndex++), ticketType));
             }
+        }
+        return new BookingService.BookingRequest(currentUser, musical, showDateTime, tickets, hold);
+    }
 
-            // Store booked seats with receipt ID
-            String seatQuery = "INSERT INTO booked_seats (musical_id, venue_id, section_id, seat_number, show_date, show_time, booking_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            PreparedStatement seatStmt = conn.prepareStatement(seatQuery);
-            
-            for (MusicalDataHandler.BookedSeat seat : selectedSeats) {
-                seatStmt.setInt(1, musical.getId());
-                seatStmt.setInt(2, seat.getVenueId());
-                seatStmt.setInt(3, seat.getSectionId());
-                seatStmt.setString(4, seat.getSeatNumber());
-                seatStmt.setDate(5, java.sql.Date.valueOf(showDateTime.toLocalDate()));
-                seatStmt.setString(6, showDateTime.format(DateTimeFormatter.ofPattern("HH:mm")));
-                seatStmt.setInt(7, receiptId);
-                seatStmt.executeUpdate();
+    // Tells the customer how the booking went; true if it was made
+    private static boolean showBookingResult(MusicalDataHandler.Musical musical, LocalDateTime showDateTime,
+                                             BookingService.BookingResult result) {
+        switch (result.getStatus()) {
+            case BOOKED -> {
+                // Generate receipt and display success message
+                String receipt = generateMultiTicketReceipt(musical.getName(), showDateTime,
+                    result.getReceiptDetails(), result.getTotalPrice());
+                JOptionPane.showMessageDialog(null, "Booking Successful!\n" + receipt);
+                return true;
             }
+            case SEATS_TAKEN -> JOptionPane.showMessageDialog(null, result.getConflictingSeats().isEmpty()
+                ? "Sorry, some of these seats have just been booked from another kiosk.\nPlease go back and choose different seats."
+                : "Sorry, your seat hold expired and these seats have since been booked: " +
+                    String.join(", ", result.getConflictingSeats()) +
+                    "\nPlease go back and choose different seats.");
+            case SOLD_OUT -> JOptionPane.showMessageDialog(null, "Sorry, there are no longer enough tickets available.");
+            default -> JOptionPane.showMessageDialog(null, "Database error: " + result.getErrorMessage());
+        }
+        return false;
+    }
 
-            // Store income data
-            String incomeQuery = "INSERT INTO income_data (amount, transaction_date, category, description) VALUES (?, ?, ?, ?)";
-            PreparedStatement incomeStmt = conn.prepareStatement(incomeQuery);
-            incomeStmt.setDouble(1, totalPrice);
-            incomeStmt.setDate(2, java.sql.Date.valueOf(showDateTime.toLocalDate()));
-            incomeStmt.setString(3, "Ticket Sales");
-            incomeStmt.setString(4, "Booking for " + musical.getName());
-            incomeStmt.executeUpdate();
-
-            conn.commit();            
-            
-            // Generate receipt and display success message
-            String receipt = generateMultiTicketReceipt(musical.getName(), showDateTime, receiptDetails.toString(), totalPrice);
-            JOptionPane.showMessageDialog(null, "Booking Successful!\n" + receipt);
-            return true;
 
-        } catch (SQLException e) {
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(null, "Database error: " + e.getMessage());
-            return false;
-        } finally {
-            try {
-                if (conn != null) conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+    private static void releaseSeatHold() {
+        if (currentSeatHold != null) {
+            currentSeatHold.release();
+            currentSeatHold = null;
         }
     }
 
-
     private static boolean isDayAvailable(String availableDays, String currentDay) {
         return Arrays.stream(availableDays.split(","))
             .map(String::trim)
@@ -1781,36 +1797,59 @@ public class FinalGUI {
             .sum();
     }
 
-    private static JPanel createTicketSelectionRow() {
+    private static JPanel createTicketSelectionRow(Runnable onCountChange) {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         panel.add(new JLabel("Ticket Type:"));
         panel.add(new JComboBox<>(new String[]{"Adult", "Senior", "Student"}));
         panel.add(new JLabel("Quantity:"));
-        panel.add(new JTextField(5));
+        JTextField countField = new JTextField(5);
+        countField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { onCountChange.run(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { onCountChange.run(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { onCountChange.run(); }
+        });
+        panel.add(countField);
         return panel;
     }
 
-    //  price calculation method
-    private static double calculatePrice(double basePrice, String ticketType, int ticketCount) {
-        // Apply discount based on ticket type
-        double discount = switch (ticketType) {
-            case "Senior" -> 0.3; // 30% off
-            case "Student" -> 0.6; // 60% off
-            default -> 0.0;  // No discount for Adult
-        };
+    private static String generateMultiTicketReceipt(String musicalName, LocalDateTime showDateTime,
+        String ticketDetails, double totalPrice) {
+
+        String receipt = formatReceipt(musicalName, showDateTime, ticketDetails, totalPrice, LocalDateTime.now());
+
+        // Save to file
+        BookingEvents.ReceiptWrite event = new BookingEvents.ReceiptWrite();
+        event.begin();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("receipt.txt", true))) {
+            writer.write(receipt);
+        } catch (IOException e) {
+            event.failed = true;
+            e.printStackTrace();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.musical = musicalName;
+            event.showDate = showDateTime.toLocalDate().toString();
+            event.showTime = showDateTime.format(DateTimeFormatter.ofPattern("HH:mm"));
+            event.path = "receipt.txt";
+            event.bytes = receipt.getBytes().length;
+            event.commit();
+        }
 
-        // Final price calculation
-        return basePrice * ticketCount * (1 - discount);
+        return receipt;
     }
 
-    private static String generateMultiTicketReceipt(String musicalName, LocalDateTime showDateTime,
-        String ticketDetails, double totalPrice) {
+    // The receipt text only, no file I/O
+    private static String formatReceipt(String musicalName, LocalDateTime showDateTime,
+        String ticketDetails, double totalPrice, LocalDateTime issuedAt) {
 
-        LocalDateTime currentDateTime = LocalDateTime.now();
-        String formattedDateTime = currentDateTime.format(
+        String formattedDateTime = issuedAt.format(
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        String receipt = String.format("""
+        return String.format("""
             Date and Time: %s
             Musical: %s
             Show Time: %s
@@ -1819,15 +1858,6 @@ public class FinalGUI {
             Total Price: £%.2f
             --------------------------------------
             """, formattedDateTime, musicalName, showDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), ticketDetails, totalPrice);
-
-        // Save to file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("receipt.txt", true))) {
-            writer.write(receipt);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return receipt;
     }
 
      
@@ -0,0 +1,185 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Daily rollups of income_data and receipts, so reports never scan the raw tables:
+ *
+ *   daily_income         (day, category, slot) -> amount, transactions
+ *   daily_musical_sales  (day, musical_id)     -> revenue, bookings, tickets
+ *
+ * The day is DATE(created_at) of the underlying rows. Bookings add to both tables inside
+ * their own transaction, see record(). Every booking of a day would otherwise update
+ * the same daily_income row and queue on its lock, so each one picks one of SLOTS rows
+ * at random and readers sum over the slots. daily_musical_sales needs no slots as the
+ * booking already holds the musical's row lock at that point.
+ *
+ * Rows written without going through BookingService (imports, the demo data, manual
+ * fixes) are picked up by rebuilding the affected days:
+ *
+ *   java -cp build/classes:lib/* IncomeRollups [--from=2025-01-01] [--to=2025-03-31]
+ *
+ * A rebuild of a date range replaces the rollups of each month in its own transaction.
+ * Bookings made while the current day is being rebuilt may be counted in it twice or
+ * not at all, so rebuild today's rows when the box office is closed. A full rebuild
+ * runs in a single transaction, so the dashboard keeps the old figures until it
+ * commits, and bookings wait on it to add to the rollups.
+ */
+public final class IncomeRollups {
+
+    static final int SLOTS = 16;
+
+    private IncomeRollups() {
+    }
+
+    /**
+     * Adds one booking to today's rollups as part of the caller's transaction. Call it
+     * after the musical's ticket count has been reserved, so locks are taken in the same
+     * order by every booking.
+     */
+    public static void record(Connection conn, int musicalId, String category, double amount,
+                              int tickets) throws SQLException {
+        PreparedStatement sales = MusicalDataHandler.prepare(conn, NamedStatement.ADD_DAILY_MUSICAL_SALES);
+        sales.setInt(1, musicalId);
+        sales.setDouble(2, amount);
+        sales.setInt(3, tickets);
+        sales.setDouble(4, amount);
+        sales.setInt(5, tickets);
+        sales.executeUpdate();
+
+        PreparedStatement income = MusicalDataHandler.prepare(conn, NamedStatement.ADD_DAILY_INCOME);
+        income.setString(1, category);
+        income.setInt(2, ThreadLocalRandom.current().nextInt(SLOTS));
+        income.setDouble(3, amount);
+        income.setDouble(4, amount);
+        income.executeUpdate();
+    }
+
+    public static void main(String[] args) {
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--from=")) {
+                    from = LocalDate.parse(arg.substring("--from=".length()));
+                } else if (arg.startsWith("--to=")) {
+                    to = LocalDate.parse(arg.substring("--to=".length()));
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: IncomeRollups [--from=YYYY-MM-DD] [--to=YYYY-MM-DD], all days by default");
+            System.exit(2);
+        }
+
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC driver not found on the classpath");
+            System.exit(1);
+        }
+
+        long started = System.nanoTime();
+        try (Connection conn = MusicalDataHandler.getConnection()) {
+            if (from == null && to == null) {
+                rebuildAll(conn);
+            } else {
+                rebuild(conn, from != null ? from : LocalDate.of(1970, 1, 1), to != null ? to : LocalDate.now());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.out.printf("Rollups rebuilt in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        System.exit(0);
+    }
+
+    // Replaces the rollups with every day that has income or receipts, in one transaction
+    public static void rebuildAll(Connection conn) throws SQLException {
+        LocalDate first = null;
+        LocalDate last = null;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT LEAST(COALESCE((SELECT MIN(created_at) FROM income_data), NOW()), " +
+                 "             COALESCE((SELECT MIN(created_at) FROM receipts), NOW())), " +
+                 "       GREATEST(COALESCE((SELECT MAX(created_at) FROM income_data), NOW()), " +
+                 "                COALESCE((SELECT MAX(created_at) FROM receipts), NOW()))")) {
+            if (rs.next()) {
+                first = rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+                last = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+            }
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM daily_income");
+                stmt.executeUpdate("DELETE FROM daily_musical_sales");
+            }
+            if (first != null) {
+                rebuildMonths(conn, first, last, false);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** Recomputes the rollups of the days from first to last, both included, a month at a time. */
+    public static void rebuild(Connection conn, LocalDate first, LocalDate last) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            rebuildMonths(conn, first, last, true);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void rebuildMonths(Connection conn, LocalDate first, LocalDate last,
+                                      boolean commitEachMonth) throws SQLException {
+        try (PreparedStatement deleteIncome = conn.prepareStatement(
+                 "DELETE FROM daily_income WHERE day >= ? AND day < ?");
+             PreparedStatement insertIncome = conn.prepareStatement(
+                 "INSERT INTO daily_income (day, category, slot, amount, transactions) " +
+                 "SELECT DATE(created_at), COALESCE(category, ''), 0, SUM(amount), COUNT(*) " +
+                 "FROM income_data WHERE created_at >= ? AND created_at < ? " +
+                 "GROUP BY DATE(created_at), COALESCE(category, '')");
+             PreparedStatement deleteSales = conn.prepareStatement(
+                 "DELETE FROM daily_musical_sales WHERE day >= ? AND day < ?");
+             PreparedStatement insertSales = conn.prepareStatement(
+                 "INSERT INTO daily_musical_sales (day, musical_id, revenue, bookings, tickets) " +
+                 "SELECT DATE(r.created_at), r.musical_id, SUM(r.total_price), COUNT(*), " +
+                 "       SUM((SELECT COUNT(*) FROM booked_seats bs WHERE bs.booking_id = r.id)) " +
+                 "FROM receipts r WHERE r.created_at >= ? AND r.created_at < ? " +
+                 "GROUP BY DATE(r.created_at), r.musical_id")) {
+
+            for (LocalDate start = first; !start.isAfter(last); ) {
+                LocalDate end = start.plusMonths(1).withDayOfMonth(1);
+                if (end.isAfter(last.plusDays(1))) {
+                    end = last.plusDays(1);
+                }
+                for (PreparedStatement pstmt : new PreparedStatement[] {deleteIncome, insertIncome,
+                                                                        deleteSales, insertSales}) {
+                    // The DELETEs compare dates, the INSERTs timestamps; both bind as dates
+                    pstmt.setDate(1, java.sql.Date.valueOf(start));
+                    pstmt.setDate(2, java.sql.Date.valueOf(end));
+                    pstmt.executeUpdate();
+                }
+                if (commitEachMonth) {
+                    conn.commit();
+                }
+                start = end;
+            }
+        }
+    }
+}
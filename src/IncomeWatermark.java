@@ -0,0 +1,124 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Which income_data rows the dashboard has already counted, so a refresh only reads the
+ * rows added since. Ids are handed out when a booking inserts its income row but only
+ * become visible when it commits, so a lower id can turn up after a higher one. Ids
+ * above the floor are therefore remembered one by one, and the floor only moves past an
+ * id once every id below it has been seen, or it was seen a gap ago and whatever is
+ * missing before it must have been rolled back. The gap is longer than the server's
+ * innodb_lock_wait_timeout, so a booking stuck waiting on a lock has either committed
+ * or given up by then.
+ *
+ * Instances never change: read() returns the next watermark along with the new rows,
+ * and the caller swaps it in once those rows are on screen.
+ */
+public final class IncomeWatermark {
+
+    // Never less than this, and always a margin above the lock wait timeout
+    private static final long MIN_GAP_SECONDS = 60;
+    private static final long GAP_MARGIN_SECONDS = 10;
+
+    // Every id up to here is counted
+    private final long floor;
+    // Counted ids above the floor, with the time each was first read
+    private final TreeMap<Long, Long> seen;
+    private final long gapMillis;
+
+    private IncomeWatermark(long floor, TreeMap<Long, Long> seen, long gapMillis) {
+        this.floor = floor;
+        this.seen = seen;
+        this.gapMillis = gapMillis;
+    }
+
+    /**
+     * The watermark matching whatever else is read in the caller's transaction. The
+     * floor is the last row created more than a gap ago; anything still being written
+     * has a later id, so every newer row is kept above the floor to let late commits
+     * through.
+     */
+    public static IncomeWatermark start(Connection conn) throws SQLException {
+        long gapSeconds;
+        long floor;
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT @@innodb_lock_wait_timeout")) {
+                rs.next();
+                gapSeconds = Math.max(MIN_GAP_SECONDS, rs.getLong(1) + GAP_MARGIN_SECONDS);
+            }
+            // created_at comes from the database clock, so compare against that one
+            try (ResultSet rs = stmt.executeQuery(
+                     "SELECT COALESCE(MAX(id), 0) FROM income_data " +
+                     "WHERE created_at < NOW() - INTERVAL " + gapSeconds + " SECOND")) {
+                rs.next();
+                floor = rs.getLong(1);
+            }
+        }
+
+        TreeMap<Long, Long> seen = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        PreparedStatement pstmt = MusicalDataHandler.prepare(conn, NamedStatement.INCOME_SINCE);
+        pstmt.setLong(1, floor);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                seen.put(rs.getLong("id"), now);
+            }
+        }
+        return new IncomeWatermark(floor, seen, gapSeconds * 1000);
+    }
+
+    // The rows committed since this watermark was taken, summed by day
+    public Delta read(Connection conn) throws SQLException {
+        TreeMap<Long, Long> nextSeen = new TreeMap<>(seen);
+        Map<LocalDate, Double> amounts = new TreeMap<>();
+        double total = 0;
+        int rows = 0;
+        long now = System.currentTimeMillis();
+
+        PreparedStatement pstmt = MusicalDataHandler.prepare(conn, NamedStatement.INCOME_SINCE);
+        pstmt.setLong(1, floor);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (nextSeen.putIfAbsent(rs.getLong("id"), now) != null) {
+                    continue;
+                }
+                double amount = rs.getDouble("amount");
+                amounts.merge(rs.getDate("day").toLocalDate(), amount, Double::sum);
+                total += amount;
+                rows++;
+            }
+        }
+
+        long nextFloor = floor;
+        for (Map.Entry<Long, Long> entry : nextSeen.entrySet()) {
+            if (entry.getKey() == nextFloor + 1 || now - entry.getValue() >= gapMillis) {
+                nextFloor = entry.getKey();
+            } else {
+                break;
+            }
+        }
+        nextSeen.headMap(nextFloor, true).clear();
+        return new Delta(new IncomeWatermark(nextFloor, nextSeen, gapMillis), amounts, total, rows);
+    }
+
+    public static final class Delta {
+        private final IncomeWatermark next;
+        private final Map<LocalDate, Double> amountsByDay;
+        private final double total;
+        private final int rows;
+
+        Delta(IncomeWatermark next, Map<LocalDate, Double> amountsByDay, double total, int rows) {
+            this.next = next;
+            this.amountsByDay = amountsByDay;
+            this.total = total;
+            this.rows = rows;
+        }
+
+        public IncomeWatermark getNext() { return next; }
+        public Map<LocalDate, Double> getAmountsByDay() { return amountsByDay; }
+        public double getTotal() { return total; }
+        public int getRows() { return rows; }
+    }
+}
@@ -0,0 +1,598 @@
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load test for the booking path. Each simulated customer repeats what the
+ * booking screen does: log in, pick a performance, read the seat map, hold some free
+ * seats and run the booking transaction. A share of the bookings goes to one "hot"
+ * performance, where everybody wants the best seats, to mimic an on-sale rush.
+ *
+ *   java -cp build/classes:lib/* -Ddb.url=jdbc:mysql://localhost:3306/musical_tickets_load \
+ *        -Ddb.pool.maxSize=20 LoadGenerator --customers=200 --duration=60 --hot-share=0.8
+ *
+ * Bookings are committed for real, so point it at a scratch copy of the database.
+ * With --round-trips it checks the booking's statement count instead, see
+ * checkRoundTrips() and the round-trip-check Ant target. Run with --help for the options.
+ */
+public class LoadGenerator {
+
+    private static final String[] TICKET_TYPES = {"Adult", "Senior", "Student"};
+
+    private final Options options;
+    private final MusicalDataHandler dataHandler;
+    private final BookingService bookingService;
+    private final List<Performance> performances;
+    private final Performance hotPerformance;
+
+    private LoadGenerator(Options options, MusicalDataHandler dataHandler,
+                          List<Performance> performances, Performance hotPerformance) {
+        this.options = options;
+        this.dataHandler = dataHandler;
+        this.bookingService = new BookingService(dataHandler);
+        this.performances = performances;
+        this.hotPerformance = hotPerformance;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC driver not found on the classpath");
+            System.exit(1);
+        }
+
+        MusicalDataHandler dataHandler = new MusicalDataHandler();
+        List<Performance> performances = schedule(dataHandler.getMusicals(), options);
+        if (performances.isEmpty()) {
+            System.err.println("No performances in the next " + options.days + " days, is the database loaded?");
+            System.exit(1);
+        }
+        Performance hot = performances.get(0);
+        if (options.hotMusicalId > 0) {
+            hot = performances.stream()
+                .filter(p -> p.musical.getId() == options.hotMusicalId)
+                .findFirst()
+                .orElse(null);
+            if (hot == null) {
+                System.err.println("Musical " + options.hotMusicalId + " has no performances in the next " + options.days + " days");
+                System.exit(1);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(options, dataHandler, performances, hot);
+        generator.createCustomers();
+        if (options.roundTrips) {
+            System.exit(generator.checkRoundTrips() ? 0 : 1);
+        }
+        Results results = generator.run();
+        results.print(System.out, generator);
+        System.exit(0);
+    }
+
+    // Every performance in the window, in date order
+    private static List<Performance> schedule(List<MusicalDataHandler.Musical> musicals, Options options) {
+        List<Performance> performances = new ArrayList<>();
+        LocalDate first = LocalDate.now().plusDays(1);
+        for (int d = 0; d < options.days; d++) {
+            LocalDate date = first.plusDays(d);
+            for (MusicalDataHandler.Musical musical : musicals) {
+                if (!runsOn(musical.getAvailableDays(), date.getDayOfWeek())) continue;
+                for (LocalTime time : options.showTimes) {
+                    performances.add(new Performance(musical, date, time));
+                }
+            }
+        }
+        return performances;
+    }
+
+    private static boolean runsOn(String availableDays, DayOfWeek day) {
+        if (availableDays == null) return false;
+        return Arrays.stream(availableDays.replace("\"", "").split(","))
+            .map(String::trim)
+            .anyMatch(d -> d.equalsIgnoreCase(day.name()));
+    }
+
+    private static String username(int customer) {
+        return "loadtest" + customer;
+    }
+
+    private void createCustomers() {
+        int created = 0;
+        for (int i = 0; i < options.customers; i++) {
+            if (!dataHandler.authenticateUser(username(i), options.password).isAuthenticated()) {
+                if (!dataHandler.registerCustomer(username(i), options.password,
+                        username(i) + "@example.com", "0000000000")) {
+                    throw new IllegalStateException("Could not create customer " + username(i));
+                }
+                created++;
+            }
+        }
+        if (created > 0) {
+            System.out.println("Created " + created + " load test customers");
+        }
+    }
+
+    private Results run() {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        List<Future<Results>> workers = new ArrayList<>();
+        for (int i = 0; i < options.customers; i++) {
+            int customer = i;
+            workers.add(AsyncDataAccess.executor().submit(
+                () -> simulateCustomer(customer, measureFrom, deadline)));
+        }
+
+        Results total = new Results();
+        for (Future<Results> worker : workers) {
+            try {
+                total.add(worker.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        total.elapsedNanos = Math.max(1, System.nanoTime() - measureFrom);
+        return total;
+    }
+
+    /**
+     * Checks that a booking costs the same, small number of statements whatever its size:
+     * books one seat, then --seats seats, and fails if either took more than
+     * --max-round-trips statements or the two differ. The booking borrows its own
+     * connection, so this needs a pool of one to read the server's counter from the
+     * same session before and after.
+     */
+    private boolean checkRoundTrips() {
+        if (MusicalDataHandler.getPoolStats().getMaxSize() != 1) {
+            System.err.println("--round-trips needs -Ddb.pool.maxSize=1");
+            return false;
+        }
+        Random random = new Random(options.seed);
+        long single = countRoundTrips(random, 1);
+        long group = countRoundTrips(random, options.maxSeats);
+        if (single < 0 || group < 0) {
+            return false;
+        }
+        if (single > options.maxRoundTrips || group > options.maxRoundTrips) {
+            System.err.println("FAILED: a booking should take at most " + options.maxRoundTrips + " round trips");
+            return false;
+        }
+        if (single != group) {
+            System.err.println("FAILED: round trips grow with the number of seats");
+            return false;
+        }
+        System.out.println("OK: " + single + " round trips per booking, at most " + options.maxRoundTrips);
+        return true;
+    }
+
+    // Statements the server ran for one booking of the given number of seats, or -1 if it failed
+    private long countRoundTrips(Random random, int wanted) {
+        Performance performance = performances.get(random.nextInt(performances.size()));
+        String showTime = performance.showTime();
+        Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> seatMap = new LinkedHashMap<>();
+        for (MusicalDataHandler.VenueWithSections venue : dataHandler.getVenuesForMusical(performance.musical.getName())) {
+            seatMap.put(venue, dataHandler.getSeatInventory()
+                .getVenueSeats(performance.musical.getId(), venue, performance.date, showTime));
+        }
+        List<MusicalDataHandler.BookedSeat> seats = chooseSeats(random, seatMap, wanted, false);
+        if (seats.size() < wanted) {
+            System.err.println("No " + wanted + " free seats in one section for " + performance);
+            return -1;
+        }
+        List<BookingService.SeatTicket> tickets = new ArrayList<>(seats.size());
+        for (MusicalDataHandler.BookedSeat seat : seats) {
+            tickets.add(new BookingService.SeatTicket(seat, TICKET_TYPES[0]));
+        }
+
+        try {
+            long session;
+            long before;
+            try (Connection conn = MusicalDataHandler.getConnection()) {
+                session = connectionId(conn);
+                before = MusicalDataHandler.getServerStatementCount(conn);
+            }
+            BookingService.BookingResult result = bookingService.book(new BookingService.BookingRequest(
+                username(0), performance.musical, LocalDateTime.of(performance.date, performance.time), tickets, null));
+            long after;
+            try (Connection conn = MusicalDataHandler.getConnection()) {
+                after = MusicalDataHandler.getServerStatementCount(conn);
+                if (connectionId(conn) != session) {
+                    System.err.println("The pool reconnected during the booking, try again");
+                    return -1;
+                }
+            }
+            if (!result.isBooked()) {
+                System.err.println("Booking failed: " + result.getErrorMessage());
+                return -1;
+            }
+            // Minus one for the second status query itself
+            long roundTrips = after - before - 1;
+            System.out.printf("Booking of %d seats for %s took %d round trips%n", seats.size(), performance, roundTrips);
+            return roundTrips;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static long connectionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CONNECTION_ID()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // One customer's sessions until the deadline; counts nothing during the warm-up
+    private Results simulateCustomer(int customer, long measureFrom, long deadline) throws InterruptedException {
+        Random random = new Random(options.seed * 31 + customer);
+        Results results = new Results();
+        String username = username(customer);
+
+        while (System.nanoTime() < deadline) {
+            long started = System.nanoTime();
+            Results sample = started >= measureFrom ? results : new Results();
+            sample.attempts++;
+
+            // Log in
+            long t = System.nanoTime();
+            boolean loggedIn = dataHandler.authenticateUser(username, options.password).isAuthenticated();
+            sample.login.record(System.nanoTime() - t);
+            if (!loggedIn) {
+                sample.loginFailures++;
+                continue;
+            }
+
+            // Pick a performance and read its seat map
+            boolean hot = random.nextDouble() < options.hotShare;
+            Performance performance = hot ? hotPerformance : performances.get(random.nextInt(performances.size()));
+            String showTime = performance.showTime();
+            t = System.nanoTime();
+            Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> seatMap = new LinkedHashMap<>();
+            for (MusicalDataHandler.VenueWithSections venue : dataHandler.getVenuesForMusical(performance.musical.getName())) {
+                seatMap.put(venue, dataHandler.getSeatInventory()
+                    .getVenueSeats(performance.musical.getId(), venue, performance.date, showTime));
+            }
+            sample.seatMap.record(System.nanoTime() - t);
+
+            int wanted = 1 + random.nextInt(options.maxSeats);
+            List<MusicalDataHandler.BookedSeat> seats = chooseSeats(random, seatMap, wanted, hot);
+            if (seats.isEmpty()) {
+                sample.noFreeSeats++;
+                continue;
+            }
+            List<BookingService.SeatTicket> tickets = new ArrayList<>(seats.size());
+            for (MusicalDataHandler.BookedSeat seat : seats) {
+                tickets.add(new BookingService.SeatTicket(seat, TICKET_TYPES[random.nextInt(TICKET_TYPES.length)]));
+            }
+            if (options.thinkMillis > 0) {
+                // Time spent looking at the seat map, where other customers get in first
+                Thread.sleep(options.thinkMillis);
+            }
+
+            // Hold the seats, then book them
+            t = System.nanoTime();
+            SeatHoldManager.HoldResult holdResult = dataHandler.getSeatHoldManager()
+                .hold(performance.musical.getId(), performance.date, showTime, seats);
+            if (!holdResult.isHeld()) {
+                sample.booking.record(System.nanoTime() - t);
+                sample.holdConflicts++;
+                sample.endToEnd.record(System.nanoTime() - started);
+                continue;
+            }
+            sample.transactions++;
+            BookingService.BookingResult result = bookingService.book(new BookingService.BookingRequest(username,
+                performance.musical, LocalDateTime.of(performance.date, performance.time), tickets, holdResult.getHold()));
+            switch (result.getStatus()) {
+                case BOOKED -> {
+                    sample.booked++;
+                    sample.seatsBooked += seats.size();
+                }
+                // The seats were just held, so only the database can have turned them down
+                case SEATS_TAKEN -> sample.constraintConflicts++;
+                case SOLD_OUT -> sample.soldOut++;
+                default -> {
+                    sample.errors++;
+                    if (sample.errors <= 3) {
+                        System.err.println(username + ": " + result.getErrorMessage());
+                    }
+                }
+            }
+            sample.booking.record(System.nanoTime() - t);
+            sample.endToEnd.record(System.nanoTime() - started);
+        }
+        return results;
+    }
+
+    /**
+     * Up to wanted free seats from one section, next to each other where possible.
+     * For the hot performance everybody goes for the front of the first section.
+     */
+    private static List<MusicalDataHandler.BookedSeat> chooseSeats(Random random,
+            Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> seatMap, int wanted, boolean hot) {
+        List<MusicalDataHandler.VenueWithSections> venues = new ArrayList<>(seatMap.keySet());
+        if (venues.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MusicalDataHandler.VenueWithSections venue = hot ? venues.get(0) : venues.get(random.nextInt(venues.size()));
+        SeatInventory.VenueSeats venueSeats = seatMap.get(venue);
+
+        List<MusicalDataHandler.VenueSection> sections = new ArrayList<>();
+        for (MusicalDataHandler.VenueSection section : venue.getSections()) {
+            SeatInventory.SectionSeats seats = venueSeats.getSection(section.getId());
+            if (seats != null && seats.freeCount() >= wanted) {
+                sections.add(section);
+            }
+        }
+        List<MusicalDataHandler.BookedSeat> chosen = new ArrayList<>(wanted);
+        if (sections.isEmpty()) {
+            return chosen;
+        }
+        MusicalDataHandler.VenueSection section = hot ? sections.get(0) : sections.get(random.nextInt(sections.size()));
+        SeatInventory.SectionSeats seats = venueSeats.getSection(section.getId());
+        int capacity = seats.getCapacity();
+        int start = hot ? 0 : random.nextInt(capacity);
+        for (int n = 0; n < capacity && chosen.size() < wanted; n++) {
+            int index = (start + n) % capacity + 1;
+            if (seats.isFree(index)) {
+                chosen.add(new MusicalDataHandler.BookedSeat(
+                    seats.seatNumber(index), section.getBasePrice(), venue.getId(), section.getId()));
+            }
+        }
+        return chosen;
+    }
+
+    private static final class Performance {
+        final MusicalDataHandler.Musical musical;
+        final LocalDate date;
+        final LocalTime time;
+
+        Performance(MusicalDataHandler.Musical musical, LocalDate date, LocalTime time) {
+            this.musical = musical;
+            this.date = date;
+            this.time = time;
+        }
+
+        String showTime() {
+            return String.format("%02d:%02d", time.getHour(), time.getMinute());
+        }
+
+        @Override
+        public String toString() {
+            return musical.getName() + " on " + date + " at " + showTime();
+        }
+    }
+
+    private static final class Results {
+        final Latencies login = new Latencies();
+        final Latencies seatMap = new Latencies();
+        final Latencies booking = new Latencies();
+        final Latencies endToEnd = new Latencies();
+        long attempts;
+        long loginFailures;
+        long noFreeSeats;
+        long holdConflicts;
+        long transactions;
+        long booked;
+        long seatsBooked;
+        long soldOut;
+        long constraintConflicts;
+        long errors;
+        long elapsedNanos;
+
+        void add(Results other) {
+            login.add(other.login);
+            seatMap.add(other.seatMap);
+            booking.add(other.booking);
+            endToEnd.add(other.endToEnd);
+            attempts += other.attempts;
+            loginFailures += other.loginFailures;
+            noFreeSeats += other.noFreeSeats;
+            holdConflicts += other.holdConflicts;
+            transactions += other.transactions;
+            booked += other.booked;
+            seatsBooked += other.seatsBooked;
+            soldOut += other.soldOut;
+            constraintConflicts += other.constraintConflicts;
+            errors += other.errors;
+        }
+
+        void print(PrintStream out, LoadGenerator generator) {
+            Options options = generator.options;
+            double seconds = elapsedNanos / 1e9;
+            long conflicts = holdConflicts + constraintConflicts;
+            long seatAttempts = holdConflicts + transactions;
+            long rolledBack = transactions - booked;
+
+            out.printf("%nLoad test: %d customers for %ds after %ds warm-up, %d-%d seats per booking%n",
+                options.customers, options.durationSeconds, options.warmupSeconds, 1, options.maxSeats);
+            out.printf("Hot performance: %s, %.0f%% of bookings%n", generator.hotPerformance, options.hotShare * 100);
+            out.printf("%nAttempts        %10d%n", attempts);
+            out.printf("Booked          %10d   %.1f bookings/s, %.1f seats/s%n",
+                booked, booked / seconds, seatsBooked / seconds);
+            out.printf("Seat conflicts  %10d   %.2f%% of seat selections (%d at hold, %d at commit)%n",
+                conflicts, percent(conflicts, seatAttempts), holdConflicts, constraintConflicts);
+            out.printf("Rolled back     %10d   %.2f%% of transactions (%d sold out, %d conflicts, %d errors)%n",
+                rolledBack, percent(rolledBack, transactions), soldOut, constraintConflicts, errors);
+            out.printf("No free seats   %10d%n", noFreeSeats);
+            if (loginFailures > 0) {
+                out.printf("Login failures  %10d%n", loginFailures);
+            }
+
+            out.printf("%nLatency (ms)        p50        p95        p99        max%n");
+            login.print(out, "login");
+            seatMap.print(out, "seat map");
+            booking.print(out, "booking");
+            endToEnd.print(out, "end to end");
+
+            ConnectionPool.PoolStats pool = MusicalDataHandler.getPoolStats();
+            out.printf("%nPool: %d max, %d borrows, %d us average wait, %d us max wait, %d timeouts%n",
+                pool.getMaxSize(), pool.getTotalBorrows(), pool.getAverageWaitMicros(),
+                pool.getMaxWaitMicros(), pool.getBorrowTimeouts());
+        }
+
+        private static double percent(long part, long whole) {
+            return whole == 0 ? 0 : part * 100.0 / whole;
+        }
+    }
+
+    // Every sample kept, so the percentiles are exact
+    private static final class Latencies {
+        private long[] nanos = new long[256];
+        private int count;
+
+        void record(long elapsed) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = elapsed;
+        }
+
+        void add(Latencies other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.nanos[i]);
+            }
+        }
+
+        void print(PrintStream out, String label) {
+            if (count == 0) {
+                out.printf("%-12s %10s%n", label, "-");
+                return;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            out.printf("%-12s %10.2f %10.2f %10.2f %10.2f%n", label,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), sorted[count - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    private static final class Options {
+        static final String USAGE = """
+            Usage: LoadGenerator [options]
+              --customers=N      concurrent customers (default 50)
+              --duration=S       seconds to measure (default 60)
+              --warmup=S         seconds to run before measuring (default 5)
+              --seats=N          each booking takes 1 to N seats (default 4)
+              --hot-share=F      fraction of bookings for the hot performance, 0 to 1 (default 0.5)
+              --hot-musical=ID   musical of the hot performance (default the first one scheduled)
+              --days=N           book performances in the next N days (default 14)
+              --show-times=LIST  show times, e.g. 14:00,19:30 (default 14:00,19:30)
+              --think-ms=MS      pause between reading the seat map and holding seats (default 0)
+              --password=TEXT    password of the loadtestN customers (default loadtest)
+              --seed=N           random seed (default 42)
+              --round-trips      book 1 seat, then --seats seats, and fail unless both took the
+                                 same number of statements, at most --max-round-trips
+                                 (needs -Ddb.pool.maxSize=1)
+              --max-round-trips=N
+                                 statements allowed per booking (default 9)
+            Database and pool settings: -Ddb.url, -Ddb.user, -Ddb.password, -Ddb.pool.maxSize""";
+
+        int customers = 50;
+        int durationSeconds = 60;
+        int warmupSeconds = 5;
+        int maxSeats = 4;
+        double hotShare = 0.5;
+        int hotMusicalId = 0;
+        int days = 14;
+        List<LocalTime> showTimes = List.of(LocalTime.of(14, 0), LocalTime.of(19, 30));
+        long thinkMillis = 0;
+        String password = "loadtest";
+        long seed = 42;
+        boolean roundTrips = false;
+        // Autocommit off, ticket count, receipt, seat batch, income, two rollups, commit,
+        // and autocommit back on when the pool takes the connection back
+        int maxRoundTrips = 9;
+        boolean help = false;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (arg.equals("--help") || arg.equals("-h")) {
+                    options.help = true;
+                    continue;
+                }
+                if (arg.equals("--round-trips")) {
+                    options.roundTrips = true;
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Unrecognised argument: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                try {
+                    switch (name.toLowerCase(Locale.ROOT)) {
+                        case "customers" -> options.customers = positive(name, Integer.parseInt(value));
+                        case "duration" -> options.durationSeconds = positive(name, Integer.parseInt(value));
+                        case "warmup" -> options.warmupSeconds = Math.max(0, Integer.parseInt(value));
+                        case "seats" -> options.maxSeats = positive(name, Integer.parseInt(value));
+                        case "hot-share" -> options.hotShare = Math.min(1, Math.max(0, Double.parseDouble(value)));
+                        case "hot-musical" -> options.hotMusicalId = Integer.parseInt(value);
+                        case "days" -> options.days = positive(name, Integer.parseInt(value));
+                        case "show-times" -> options.showTimes = Arrays.stream(value.split(","))
+                            .map(String::trim)
+                            .map(LocalTime::parse)
+                            .toList();
+                        case "think-ms" -> options.thinkMillis = Math.max(0, Long.parseLong(value));
+                        case "password" -> options.password = value;
+                        case "seed" -> options.seed = Long.parseLong(value);
+                        case "max-round-trips" -> options.maxRoundTrips = positive(name, Integer.parseInt(value));
+                        default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                    }
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("Bad value for --" + name + ": " + value);
+                }
+            }
+            return options;
+        }
+
+        private static int positive(String name, int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("--" + name + " must be at least 1");
+            }
+            return value;
+        }
+    }
+}
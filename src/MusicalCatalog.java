@@ -0,0 +1,302 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of musicals indexed by id and by name. Lookups are served from
+ * memory and only go to the database on a miss. A background thread polls a cheap
+ * watermark (MAX(updated_at), COUNT(*), SUM(id)) and re-reads just the rows that
+ * changed, so edits made from other kiosks show up without the readers ever paying a
+ * round trip. Ids are never reused, so the id sum moves whenever a row is deleted,
+ * even if another one was added in its place.
+ *
+ * The catalog is held as an immutable Snapshot. Readers grab the current one and never
+ * lock or copy; every change builds a new snapshot and swaps it in atomically.
+ */
+public class MusicalCatalog {
+
+    private static final long WATERMARK_POLL_MILLIS = Long.getLong("catalog.watermarkPollMs", 2000);
+
+    private final AtomicReference<Snapshot> current =
+        new AtomicReference<>(new Snapshot(0, Collections.emptyList()));
+    private final ScheduledExecutorService poller;
+
+    // Only touched by the poller thread
+    private Watermark watermark;
+
+    public MusicalCatalog() {
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "musical-catalog-watermark");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollWatermark,
+            0, WATERMARK_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public MusicalDataHandler.Musical getByName(String name) {
+        MusicalDataHandler.Musical musical = current.get().getByName(name);
+        if (musical == null) {
+            musical = load(NamedStatement.MUSICAL_BY_NAME, pstmt -> pstmt.setString(1, name));
+        }
+        return musical;
+    }
+
+    public MusicalDataHandler.Musical getById(int id) {
+        MusicalDataHandler.Musical musical = current.get().getById(id);
+        if (musical == null) {
+            musical = load(NamedStatement.MUSICAL_BY_ID, pstmt -> pstmt.setInt(1, id));
+        }
+        return musical;
+    }
+
+    public void put(MusicalDataHandler.Musical musical) {
+        publish(snapshot -> snapshot.with(musical));
+    }
+
+    // Publishes a complete catalog, replacing whatever was cached
+    public void replaceAll(Collection<MusicalDataHandler.Musical> musicals) {
+        publish(snapshot -> new Snapshot(snapshot.version + 1, musicals));
+    }
+
+    public void updateTicketCount(int musicalId, int availableTickets) {
+        publish(snapshot -> {
+            MusicalDataHandler.Musical musical = snapshot.getById(musicalId);
+            return musical == null ? snapshot : snapshot.with(musical.withAvailableTickets(availableTickets));
+        });
+    }
+
+    // Drop a musical that was edited, renamed or deleted; the next lookup re-reads it
+    // and the poller, run straight away, brings the list up to date
+    public void invalidate(String name) {
+        publish(snapshot -> snapshot.without(name));
+        poller.execute(this::pollWatermark);
+    }
+
+    private void publish(UnaryOperator<Snapshot> change) {
+        current.updateAndGet(change);
+    }
+
+    @SuppressWarnings("try")
+    private MusicalDataHandler.Musical load(NamedStatement statement, ParameterSetter parameters) {
+        BookingEvents.CatalogLoad event = new BookingEvents.CatalogLoad();
+        event.begin();
+        MusicalDataHandler.Musical musical = null;
+        try (QueryMetrics.Timer timer = QueryMetrics.time("loadMusical");
+             Connection conn = MusicalDataHandler.getConnection()) {
+            PreparedStatement pstmt = MusicalDataHandler.prepare(conn, statement);
+            parameters.set(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    musical = MusicalDataHandler.readMusical(rs);
+                    put(musical);
+                }
+            }
+        } catch (SQLException e) {
+            QueryMetrics.recordError("loadMusical");
+            event.failed = true;
+            System.err.println("Database connection failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "single";
+            event.musicalId = musical != null ? musical.getId() : 0;
+            event.musicals = musical != null ? 1 : 0;
+            event.commit();
+        }
+        return musical;
+    }
+
+    @SuppressWarnings("try")
+    private void pollWatermark() {
+        // Only committed when the poll goes on to re-read musicals
+        BookingEvents.CatalogLoad event = new BookingEvents.CatalogLoad();
+        try (QueryMetrics.Timer timer = QueryMetrics.time("pollCatalogWatermark");
+             Connection conn = MusicalDataHandler.getConnection()) {
+            Watermark latest;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                     "SELECT MAX(updated_at) AS last_update, COUNT(*) AS total, " +
+                     "COALESCE(SUM(id), 0) AS id_sum, NOW() AS server_time FROM musicals")) {
+                if (!rs.next()) return;
+                Timestamp lastUpdate = rs.getTimestamp("last_update");
+                latest = new Watermark(lastUpdate, rs.getLong("total"), rs.getLong("id_sum"),
+                    lastUpdate != null && !lastUpdate.before(rs.getTimestamp("server_time")));
+            }
+
+            Watermark previous = watermark;
+            watermark = latest;
+            // A second edit within the same second leaves MAX(updated_at) where it was,
+            // so keep re-reading that second until the database clock has moved past it
+            if (previous == null || (previous.equals(latest) && !previous.secondOpen)) {
+                return;
+            }
+            event.begin();
+            if (previous.count != latest.count || previous.idSum != latest.idSum || previous.lastUpdate == null) {
+                // Rows were added or deleted somewhere, re-read the whole catalog
+                event.kind = "full";
+                List<MusicalDataHandler.Musical> musicals = new ArrayList<>();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM musicals")) {
+                    while (rs.next()) {
+                        musicals.add(MusicalDataHandler.readMusical(rs));
+                    }
+                }
+                replaceAll(musicals);
+                event.musicals = musicals.size();
+                event.commit();
+                return;
+            }
+
+            // updated_at has one-second resolution, so re-read the boundary second too
+            event.kind = "changed";
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT * FROM musicals WHERE updated_at >= ?")) {
+                pstmt.setTimestamp(1, previous.lastUpdate);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        put(MusicalDataHandler.readMusical(rs));
+                        event.musicals++;
+                    }
+                }
+            }
+            event.commit();
+        } catch (SQLException e) {
+            QueryMetrics.recordError("pollCatalogWatermark");
+            if (event.kind != null) {
+                event.failed = true;
+                event.commit();
+            }
+            // Keep serving the cached entries, the next poll will retry
+            System.err.println("Catalog watermark check failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * One immutable version of the catalog. The list keeps the database order, so list
+     * views can iterate it directly from any thread.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<MusicalDataHandler.Musical> musicals;
+        private final Map<Integer, MusicalDataHandler.Musical> byId;
+        private final Map<String, MusicalDataHandler.Musical> byName;
+        // Built on first use, at most once per version
+        private volatile CategoryIndex categoryIndex;
+
+        Snapshot(long version, Collection<MusicalDataHandler.Musical> musicals) {
+            Map<Integer, MusicalDataHandler.Musical> ids = new LinkedHashMap<>();
+            for (MusicalDataHandler.Musical musical : musicals) {
+                ids.put(musical.getId(), musical);
+            }
+            Map<String, MusicalDataHandler.Musical> names = new HashMap<>();
+            for (MusicalDataHandler.Musical musical : ids.values()) {
+                names.put(musical.getName(), musical);
+            }
+            this.version = version;
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byName = Collections.unmodifiableMap(names);
+            this.musicals = Collections.unmodifiableList(new ArrayList<>(ids.values()));
+        }
+
+        public long getVersion() { return version; }
+        public List<MusicalDataHandler.Musical> getMusicals() { return musicals; }
+        public MusicalDataHandler.Musical getById(int id) { return byId.get(id); }
+        public MusicalDataHandler.Musical getByName(String name) { return byName.get(name); }
+
+        public CategoryIndex getCategoryIndex() {
+            CategoryIndex index = categoryIndex;
+            if (index == null) {
+                index = new CategoryIndex(musicals);
+                categoryIndex = index;
+            }
+            return index;
+        }
+
+        // The musicals whose positions are set, in catalog order
+        public List<MusicalDataHandler.Musical> select(BitSet positions) {
+            List<MusicalDataHandler.Musical> selected = new ArrayList<>(positions.cardinality());
+            for (int i = positions.nextSetBit(0); i >= 0 && i < musicals.size(); i = positions.nextSetBit(i + 1)) {
+                selected.add(musicals.get(i));
+            }
+            return selected;
+        }
+
+        // Replaces the musical with the same id in place, or appends it
+        Snapshot with(MusicalDataHandler.Musical musical) {
+            Map<Integer, MusicalDataHandler.Musical> ids = new LinkedHashMap<>(byId);
+            MusicalDataHandler.Musical previous = ids.put(musical.getId(), musical);
+            Snapshot next = new Snapshot(version + 1, ids.values());
+            if (previous != null && Objects.equals(previous.getCategories(), musical.getCategories())) {
+                // Same position, same categories: ticket sales do not cost an index rebuild
+                next.categoryIndex = categoryIndex;
+            }
+            return next;
+        }
+
+        Snapshot without(String name) {
+            MusicalDataHandler.Musical musical = byName.get(name);
+            if (musical == null) {
+                return this;
+            }
+            Map<Integer, MusicalDataHandler.Musical> ids = new LinkedHashMap<>(byId);
+            ids.remove(musical.getId());
+            return new Snapshot(version + 1, ids.values());
+        }
+    }
+
+    private interface ParameterSetter {
+        void set(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private static final class Watermark {
+        final Timestamp lastUpdate;
+        final long count;
+        final long idSum;
+        // lastUpdate was still the current second when read
+        final boolean secondOpen;
+
+        Watermark(Timestamp lastUpdate, long count, long idSum, boolean secondOpen) {
+            this.lastUpdate = lastUpdate;
+            this.count = count;
+            this.idSum = idSum;
+            this.secondOpen = secondOpen;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Watermark)) return false;
+            Watermark other = (Watermark) o;
+            return count == other.count && idSum == other.idSum && Objects.equals(lastUpdate, other.lastUpdate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastUpdate, count, idSum);
+        }
+    }
+}
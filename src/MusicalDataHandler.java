@@ -7,13 +7,62 @@ import java.time.format.DateTimeFormatter;
 
 public class MusicalDataHandler {
 
-    protected final List<Musical> musicals;
-    protected static final String DB_URL = "jdbc:mysql://localhost:3306/musical_tickets";
-    protected static final String USER = "root";
-    protected static final String PASS = "";
+    private final MusicalCatalog catalog = new MusicalCatalog();
+    private final SeatInventory seatInventory = new SeatInventory(this);
+    private final SeatClaimEngine seatClaimEngine = new SeatClaimEngine(seatInventory);
+    private final SeatHoldManager seatHoldManager = new SeatHoldManager(seatClaimEngine);
+    // Venue names per musical id, loaded on first use with a single query
+    private volatile Map<Integer, List<String>> venueNamesByMusical;
+    // Another server can be used with -Ddb.url=... -Ddb.user=... -Ddb.password=...
+    protected static final String DB_URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/musical_tickets");
+    protected static final String USER = System.getProperty("db.user", "root");
+    protected static final String PASS = System.getProperty("db.password", "");
+
+    // Connection pool settings, sized against the MySQL server's max_connections
+    protected static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    protected static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("db.pool.borrowTimeoutMs", 5000);
+    protected static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("db.pool.leakThresholdMs", 30000);
+    protected static final boolean POOL_LEAK_TRACES = Boolean.getBoolean("db.pool.leakTraces");
+
+    private static final ConnectionPool pool = new ConnectionPool(
+        DB_URL, connectionProperties(), POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS,
+        POOL_LEAK_TRACES);
+
+    private static Properties connectionProperties() {
+        Properties props = new Properties();
+        props.setProperty("user", USER);
+        props.setProperty("password", PASS);
+        // Prepare on the server so reused statements skip the parse step
+        props.setProperty("useServerPrepStmts", "true");
+        // Send a JDBC batch of inserts as one multi-row INSERT
+        props.setProperty("rewriteBatchedStatements", "true");
+        // Skip the autocommit/rollback statements when the driver already knows they are no-ops
+        props.setProperty("useLocalSessionState", "true");
+        props.setProperty("useLocalTransactionState", "true");
+        return props;
+    }
+
+    // Statements the server has executed on this connection; see LoadGenerator --round-trips
+    public static long getServerStatementCount(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW SESSION STATUS LIKE 'Questions'")) {
+            return rs.next() ? rs.getLong(2) : 0;
+        }
+    }
+
+    public static Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    public static PreparedStatement prepare(Connection conn, NamedStatement statement) throws SQLException {
+        return ConnectionPool.prepareCached(conn, statement);
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool.getStats();
+    }
 
     public MusicalDataHandler() {
-        musicals = new ArrayList<>();
         try {
             loadMusicalData();
         } catch (Exception e) {
@@ -22,78 +71,86 @@ public class MusicalDataHandler {
         }
     }
 
+     @SuppressWarnings("try")
      private void loadMusicalData() {
-         try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+         BookingEvents.CatalogLoad event = new BookingEvents.CatalogLoad();
+         event.begin();
+         event.kind = "full";
+         try (QueryMetrics.Timer timer = QueryMetrics.time("loadMusicals");
+              Connection conn = getConnection()) {
              String query = "SELECT * FROM musicals";
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query);
 
+             List<Musical> loaded = new ArrayList<>();
              while (rs.next()) {
-                 Musical musical = new Musical(
-                     rs.getInt("id"),
-                     rs.getString("name"),
-                     rs.getString("run_time"),
-                     rs.getString("categories"),
-                     rs.getString("age_restriction"),
-                     rs.getDouble("price"),
-                     rs.getInt("available_tickets"),
-                     rs.getString("available_days")
-                 );
-                 musicals.add(musical);
+                 loaded.add(readMusical(rs));
              }
+             catalog.replaceAll(loaded);
+             event.musicals = loaded.size();
          } catch (SQLException e) {
+             QueryMetrics.recordError("loadMusicals");
+             event.failed = true;
              e.printStackTrace();
          }
+         event.commit();
      }
 
+     static Musical readMusical(ResultSet rs) throws SQLException {
+         return new Musical(
+             rs.getInt("id"),
+             rs.getString("name"),
+             rs.getString("run_time"),
+             rs.getString("categories"),
+             rs.getString("age_restriction"),
+             rs.getDouble("price"),
+             rs.getInt("available_tickets"),
+             rs.getString("available_days")
+         );
+     }
+
+     // Served from the catalog cache, only queries the first time a musical is asked for
      public Musical getMusicalByName(String name) {
-         try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-             String query = "SELECT * FROM musicals WHERE name = ?";
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             pstmt.setString(1, name);
-             ResultSet rs = pstmt.executeQuery();
-
-             if (rs.next()) {
-                 return new Musical(
-                     rs.getInt("id"),
-                     rs.getString("name"),
-                     rs.getString("run_time"),
-                     rs.getString("categories"),
-                     rs.getString("age_restriction"),
-                     rs.getDouble("price"),
-                     rs.getInt("available_tickets"),
-                     rs.getString("available_days")
-                 );
-             }
-         } catch (SQLException e) {
-            System.err.println("Database connection failed: " + e.getMessage());
-            e.printStackTrace();
-        }
-         return null;
+         return catalog.getByName(name);
      }
 
-     public void updateTicketCount(String musicalName, int newCount) {
-         try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-             String query = "UPDATE musicals SET available_tickets = ? WHERE name = ?";
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             pstmt.setInt(1, newCount);
-             pstmt.setString(2, musicalName);
-             pstmt.executeUpdate();
+     public Musical getMusicalById(int id) {
+         return catalog.getById(id);
+     }
 
-             // Update local cache
-             for (Musical musical : musicals) {
-                 if (musical.getName().equals(musicalName)) {
-                     musical.setAvailableTickets(newCount);
-                     break;
-                 }
-             }
-         } catch (SQLException e) {
-             e.printStackTrace();
+     // Call after a musical has been added, edited, renamed or deleted
+     public void invalidateMusical(String name) {
+         catalog.invalidate(name);
+         venueNamesByMusical = null; // Its venues may have changed too
+     }
+
+     /**
+      * Takes count tickets as part of the caller's transaction. Returns the number of
+      * tickets left, or -1 without changing anything if fewer than count remain.
+      */
+     public int reserveTickets(Connection conn, int musicalId, int count) throws SQLException {
+         PreparedStatement pstmt = prepare(conn, NamedStatement.RESERVE_TICKETS);
+         pstmt.setInt(1, count);
+         pstmt.setInt(2, musicalId);
+         pstmt.setInt(3, count);
+         if (pstmt.executeUpdate() == 0) {
+             return -1;
+         }
+         // The driver reports no key when the new count is 0
+         try (ResultSet rs = pstmt.getGeneratedKeys()) {
+             return rs.next() ? rs.getInt(1) : 0;
          }
      }
 
+     // Call after the transaction that reserved the tickets has committed
+     public void updateTicketCount(int musicalId, int availableTickets) {
+         catalog.updateTicketCount(musicalId, availableTickets);
+     }
+
+     @SuppressWarnings("try")
      public int getCustomerId(String username) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getCustomerId");
+             Connection conn = getConnection()) {
             String query = "SELECT id FROM customers WHERE username = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
@@ -105,36 +162,58 @@ public class MusicalDataHandler {
                 throw new SQLException("Customer not found: " + username);
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getCustomerId");
             e.printStackTrace();
             return -1;
         }
     }
 
 
+     @SuppressWarnings("try")
      public void saveReceipt(String receipt, String filePath) {
-         try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+         try (QueryMetrics.Timer timer = QueryMetrics.time("saveReceipt");
+              Connection conn = getConnection()) {
              String query = "INSERT INTO receipts (receipt_text, created_at) VALUES (?, NOW())";
              PreparedStatement pstmt = conn.prepareStatement(query);
              pstmt.setString(1, receipt);
              pstmt.executeUpdate();
          } catch (SQLException e) {
+             QueryMetrics.recordError("saveReceipt");
              e.printStackTrace();
          }
      }
 
+     // Immutable, safe to iterate from any thread while the catalog changes
      public List<Musical> getMusicals() {
-         return musicals;
+         return catalog.snapshot().getMusicals();
      }
 
-    public class Musical {
-        private int id;
-        private String name;
-        private String runTime;
-        private String categories;
-        private String ageRestriction;
-        private double price;
-        private int availableTickets;
-        private String availableDays;
+     public MusicalCatalog.Snapshot getCatalogSnapshot() {
+         return catalog.snapshot();
+     }
+
+     public SeatInventory getSeatInventory() {
+         return seatInventory;
+     }
+
+     public SeatClaimEngine getSeatClaimEngine() {
+         return seatClaimEngine;
+     }
+
+     public SeatHoldManager getSeatHoldManager() {
+         return seatHoldManager;
+     }
+
+    // Immutable, changes are published as a new instance through the catalog
+    public static final class Musical {
+        private final int id;
+        private final String name;
+        private final String runTime;
+        private final String categories;
+        private final String ageRestriction;
+        private final double price;
+        private final int availableTickets;
+        private final String availableDays;
 
         // Constructor
         public Musical(int id, String name, String runTime, String categories, String ageRestriction, double price, 
@@ -172,8 +251,9 @@ public class MusicalDataHandler {
         public int getAvailableTickets() {
             return availableTickets;
         }
-        public void setAvailableTickets(int availableTickets) {
-            this.availableTickets = availableTickets;
+        public Musical withAvailableTickets(int availableTickets) {
+            return new Musical(id, name, runTime, categories, ageRestriction, price,
+                availableTickets, availableDays);
         }
         public String getAvailableDays() {
             return availableDays;
@@ -197,8 +277,10 @@ public class MusicalDataHandler {
         public String getUserType() { return userType; }
     }
 
+    @SuppressWarnings("try")
     public AuthenticationResult authenticateUser(String username, String password) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("authenticateUser");
+             Connection conn = getConnection()) {
             // First try staff table
             String staffQuery = "SELECT role FROM staff WHERE username = ? AND password = ?";
             PreparedStatement staffStmt = conn.prepareStatement(staffQuery);
@@ -223,13 +305,16 @@ public class MusicalDataHandler {
 
             return new AuthenticationResult(false, null, null);
         } catch (SQLException e) {
+            QueryMetrics.recordError("authenticateUser");
             e.printStackTrace();
             return new AuthenticationResult(false, null, null);
         }
     }
 
+    @SuppressWarnings("try")
     public boolean registerCustomer(String username, String password, String email, String phone) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("registerCustomer");
+             Connection conn = getConnection()) {
             String query = "INSERT INTO customers (username, password, email, phone_number) VALUES (?, ?, ?, ?)";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
@@ -239,13 +324,16 @@ public class MusicalDataHandler {
             pstmt.executeUpdate();
             return true;
         } catch (SQLException e) {
+            QueryMetrics.recordError("registerCustomer");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public String getUserType(String username) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getUserType");
+             Connection conn = getConnection()) {
             // Check staff table first
             String staffQuery = "SELECT 'STAFF' as type FROM staff WHERE username = ?";
             PreparedStatement staffStmt = conn.prepareStatement(staffQuery);
@@ -266,14 +354,17 @@ public class MusicalDataHandler {
                 return "CUSTOMER";
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getUserType");
             e.printStackTrace();
         }
         return null;
     }
 
     
+    @SuppressWarnings("try")
     public boolean createStaffMember(String username, String password, String role, String permissions) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("createStaffMember");
+             Connection conn = getConnection()) {
             String query = "INSERT INTO staff (username, password, role, permissions) VALUES (?, ?, ?, ?)";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
@@ -282,14 +373,17 @@ public class MusicalDataHandler {
             pstmt.setString(4, permissions);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("createStaffMember");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public List<StaffMember> getAllStaff() {
         List<StaffMember> staffList = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getAllStaff");
+             Connection conn = getConnection()) {
             String query = "SELECT * FROM staff";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -304,13 +398,16 @@ public class MusicalDataHandler {
                 ));
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getAllStaff");
             e.printStackTrace();
         }
         return staffList;
     }
 
+    @SuppressWarnings("try")
     public boolean updateStaffPermissions(int staffId, String role, String permissions) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateStaffPermissions");
+             Connection conn = getConnection()) {
             String query = "UPDATE staff SET role = ?, permissions = ? WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, role);
@@ -318,6 +415,7 @@ public class MusicalDataHandler {
             pstmt.setInt(3, staffId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("updateStaffPermissions");
             e.printStackTrace();
             return false;
         }
@@ -346,8 +444,10 @@ public class MusicalDataHandler {
         public Timestamp getCreatedAt() { return createdAt; }
     }
 
+    @SuppressWarnings("try")
     public boolean updateStaffMemberWithPassword(int staffId, String role, String permissions, String hashedPassword) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateStaffMemberWithPassword");
+             Connection conn = getConnection()) {
             String query = "UPDATE staff SET role = ?, permissions = ?, password = ? WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, role);
@@ -356,13 +456,16 @@ public class MusicalDataHandler {
             pstmt.setInt(4, staffId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("updateStaffMemberWithPassword");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public boolean updateStaffMember(int staffId, String role, String permissions) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateStaffMember");
+             Connection conn = getConnection()) {
             String query = "UPDATE staff SET role = ?, permissions = ? WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, role);
@@ -370,25 +473,31 @@ public class MusicalDataHandler {
             pstmt.setInt(3, staffId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("updateStaffMember");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public boolean deleteStaffMember(int staffId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("deleteStaffMember");
+             Connection conn = getConnection()) {
             String query = "DELETE FROM staff WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, staffId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("deleteStaffMember");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public int getAdminCount() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getAdminCount");
+             Connection conn = getConnection()) {
             String query = "SELECT COUNT(*) FROM staff WHERE role = 'ADMIN'";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -396,13 +505,16 @@ public class MusicalDataHandler {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getAdminCount");
             e.printStackTrace();
         }
         return 0;
     }
 
+    @SuppressWarnings("try")
     public String getStaffRole(int staffId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getStaffRole");
+             Connection conn = getConnection()) {
             String query = "SELECT role FROM staff WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, staffId);
@@ -411,13 +523,16 @@ public class MusicalDataHandler {
                 return rs.getString("role");
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getStaffRole");
             e.printStackTrace();
         }
         return null;
     }
 
+    @SuppressWarnings("try")
     public String getStaffPermissions(String username) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getStaffPermissions");
+             Connection conn = getConnection()) {
             String query = "SELECT permissions FROM staff WHERE username = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
@@ -427,14 +542,17 @@ public class MusicalDataHandler {
                 return rs.getString("permissions");
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getStaffPermissions");
             e.printStackTrace();
         }
         return "";
     }
     
+    @SuppressWarnings("try")
     public List<CustomerInfo> getAllCustomers() {
         List<CustomerInfo> customers = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getAllCustomers");
+             Connection conn = getConnection()) {
             String query = "SELECT id, username, email, phone_number, created_at FROM customers";
             Statement stmt = conn.createStatement();
             ResultSet rs = stmt.executeQuery(query);
@@ -449,13 +567,16 @@ public class MusicalDataHandler {
                 ));
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getAllCustomers");
             e.printStackTrace();
         }
         return customers;
     }
 
+    @SuppressWarnings("try")
     public boolean updateCustomer(int customerId, String username, String password, String email, String phone) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateCustomer");
+             Connection conn = getConnection()) {
             // If password is empty, update without changing password
             if (password.isEmpty()) {
                 String query = "UPDATE customers SET username = ?, email = ?, phone_number = ? WHERE id = ?";
@@ -477,54 +598,68 @@ public class MusicalDataHandler {
                 return pstmt.executeUpdate() > 0;
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("updateCustomer");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public boolean deleteCustomer(int customerId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("deleteCustomer");
+             Connection conn = getConnection()) {
             String query = "DELETE FROM customers WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, customerId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("deleteCustomer");
             e.printStackTrace();
             return false;
         }
     }
 
 
+    @SuppressWarnings("try")
     public boolean addVenue(String name, int capacity) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("addVenue");
+             Connection conn = getConnection()) {
             String query = "INSERT INTO venues (name, total_capacity) VALUES (?, ?)";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, name);
             pstmt.setInt(2, capacity);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("addVenue");
             e.printStackTrace();
             return false;
         }
     }
 
+    @SuppressWarnings("try")
     public boolean updateVenue(int venueId, String name, int capacity) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("updateVenue");
+             Connection conn = getConnection()) {
             String query = "UPDATE venues SET name = ?, total_capacity = ? WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, name);
             pstmt.setInt(2, capacity);
             pstmt.setInt(3, venueId);
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            venueNamesByMusical = null; // The venue may have been renamed
+            return updated;
         } catch (SQLException e) {
+            QueryMetrics.recordError("updateVenue");
             e.printStackTrace();
             return false;
         }
     }
 
 
+    @SuppressWarnings("try")
     public boolean addSection(int venueId, String name, int capacity, double basePrice) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("addSection");
+             Connection conn = getConnection()) {
             String query = "INSERT INTO sections (venue_id, name, capacity, base_price) VALUES (?, ?, ?, ?)";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, venueId);
@@ -533,83 +668,157 @@ public class MusicalDataHandler {
             pstmt.setDouble(4, basePrice);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("addSection");
             e.printStackTrace();
             return false;
         }
     }
     
+    @SuppressWarnings("try")
     public boolean deleteSection(int sectionId) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("deleteSection");
+             Connection conn = getConnection()) {
             String query = "DELETE FROM sections WHERE id = ?";
             PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, sectionId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            QueryMetrics.recordError("deleteSection");
             e.printStackTrace();
             return false;
         }
     }
 
 
+    @SuppressWarnings("try")
     public List<VenueSection> getVenueSections(int venueId) {
         List<VenueSection> sections = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-            String query = "SELECT * FROM sections WHERE venue_id = ?";
-            PreparedStatement pstmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getVenueSections");
+             Connection conn = getConnection()) {
+            PreparedStatement pstmt = prepare(conn, NamedStatement.SECTIONS_BY_VENUE);
             pstmt.setInt(1, venueId);
-            ResultSet rs = pstmt.executeQuery();
 
-            while (rs.next()) {
-                sections.add(new VenueSection(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("capacity"),
-                    rs.getDouble("base_price")
-                ));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sections.add(new VenueSection(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getInt("capacity"),
+                        rs.getDouble("base_price")
+                    ));
+                }
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getVenueSections");
             e.printStackTrace();
         }
         return sections;
     }
 
+    // The musical's daily show times as HH:mm, earliest first
+    @SuppressWarnings("try")
+    public List<String> getShowTimes(int musicalId) {
+        List<String> showTimes = new ArrayList<>();
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getShowTimes");
+             Connection conn = getConnection()) {
+            PreparedStatement pstmt = prepare(conn, NamedStatement.SHOW_TIMES_BY_MUSICAL);
+            pstmt.setInt(1, musicalId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    showTimes.add(rs.getString("show_time").substring(0, 5));
+                }
+            }
+        } catch (SQLException e) {
+            QueryMetrics.recordError("getShowTimes");
+            e.printStackTrace();
+        }
+        return showTimes;
+    }
+
+    @SuppressWarnings("try")
     public List<String> getBookedSeats(String musicalName, int venueId, int sectionId,
                                   LocalDate showDate, String showTime) {
         List<String> bookedSeats = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        BookingEvents.BookedSeatsFetch event = new BookingEvents.BookedSeatsFetch();
+        event.begin();
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getBookedSeats");
+             Connection conn = getConnection()) {
             // Format the time to match database storage format
             String formattedTime = showTime.substring(0, 5); // Gets only HH:mm part
             
-            String query = "SELECT seat_number FROM booked_seats WHERE " +
-                        "musical_id = (SELECT id FROM musicals WHERE name = ?) " +
-                        "AND venue_id = ? " +
-                        "AND section_id = ? " +
-                        "AND show_date = ? " +
-                        "AND show_time LIKE ?";
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
+            PreparedStatement pstmt = prepare(conn, NamedStatement.BOOKED_SEATS);
             pstmt.setString(1, musicalName);
             pstmt.setInt(2, venueId);
             pstmt.setInt(3, sectionId);
             pstmt.setDate(4, java.sql.Date.valueOf(showDate));
             pstmt.setString(5, formattedTime + "%");
             
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                bookedSeats.add(rs.getString("seat_number"));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bookedSeats.add(rs.getString("seat_number"));
+                }
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("getBookedSeats");
+            event.failed = true;
             e.printStackTrace();
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.musical = musicalName;
+            event.venueId = venueId;
+            event.sectionId = sectionId;
+            event.showDate = showDate.toString();
+            event.showTime = showTime.substring(0, 5);
+            event.seats = bookedSeats.size();
+            event.commit();
+        }
         return bookedSeats;
     }
 
 
 
+    public List<String> getVenueNamesForMusical(int musicalId) {
+        Map<Integer, List<String>> venueNames = venueNamesByMusical;
+        if (venueNames == null) {
+            venueNames = loadVenueNames();
+            if (venueNames == null) {
+                return Collections.emptyList(); // Retried on the next call
+            }
+            venueNamesByMusical = venueNames;
+        }
+        return venueNames.getOrDefault(musicalId, Collections.emptyList());
+    }
+
+    @SuppressWarnings("try")
+    private Map<Integer, List<String>> loadVenueNames() {
+        Map<Integer, List<String>> venueNames = new HashMap<>();
+        try (QueryMetrics.Timer timer = QueryMetrics.time("loadVenueNames");
+             Connection conn = getConnection()) {
+            String query = "SELECT mv.musical_id, v.name FROM musical_venues mv " +
+                          "JOIN venues v ON v.id = mv.venue_id";
+            Statement stmt = conn.createStatement();
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    venueNames.computeIfAbsent(rs.getInt("musical_id"), k -> new ArrayList<>())
+                        .add(rs.getString("name"));
+                }
+            }
+        } catch (SQLException e) {
+            QueryMetrics.recordError("loadVenueNames");
+            e.printStackTrace();
+            return null;
+        }
+        return venueNames;
+    }
+
+    @SuppressWarnings("try")
     public List<VenueWithSections> getVenuesForMusical(String musicalName) {
         List<VenueWithSections> venues = new ArrayList<>();
         Map<Integer, VenueWithSections> venueMap = new HashMap<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("getVenuesForMusical");
+             Connection conn = getConnection()) {
             String query = "SELECT v.*, s.* FROM venues v " +
                           "JOIN musical_venues mv ON v.id = mv.venue_id " +
                           "JOIN musicals m ON mv.musical_id = m.id " +
@@ -650,6 +859,7 @@ public class MusicalDataHandler {
             }
             venues.addAll(venueMap.values());
         } catch (SQLException e) {
+            QueryMetrics.recordError("getVenuesForMusical");
             e.printStackTrace();
         }
         return venues;
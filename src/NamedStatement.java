@@ -0,0 +1,89 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Registry of the hot SQL statements. Each one is prepared once per pooled
+ * connection and reused, see ConnectionPool.prepareCached().
+ */
+public enum NamedStatement {
+
+    BOOKED_SEATS(
+        "SELECT seat_number FROM booked_seats WHERE " +
+        "musical_id = (SELECT id FROM musicals WHERE name = ?) " +
+        "AND venue_id = ? " +
+        "AND section_id = ? " +
+        "AND show_date = ? " +
+        "AND show_time LIKE ?"),
+
+    PERFORMANCE_BOOKED_SEATS(
+        "SELECT section_id, seat_number FROM booked_seats " +
+        "WHERE musical_id = ? AND venue_id = ? AND show_date = ? AND show_time LIKE ?"),
+
+    MUSICAL_BY_NAME(
+        "SELECT * FROM musicals WHERE name = ?"),
+
+    MUSICAL_BY_ID(
+        "SELECT * FROM musicals WHERE id = ?"),
+
+    SECTIONS_BY_VENUE(
+        "SELECT * FROM sections WHERE venue_id = ?"),
+
+    SHOW_TIMES_BY_MUSICAL(
+        "SELECT show_time FROM show_times WHERE musical_id = ? ORDER BY show_time"),
+
+    // Resolves the customer id in the same statement, inserts nothing if the username is unknown
+    INSERT_RECEIPT(
+        "INSERT INTO receipts (customer_id, musical_id, total_price, show_date, show_time, receipt_text) " +
+        "SELECT id, ?, ?, ?, ?, ? FROM customers WHERE username = ?",
+        true),
+
+    INSERT_BOOKED_SEAT(
+        "INSERT INTO booked_seats (musical_id, venue_id, section_id, seat_number, show_date, show_time, booking_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)"),
+
+    // Only succeeds if enough tickets remain; LAST_INSERT_ID(expr) returns the new count as the generated key
+    RESERVE_TICKETS(
+        "UPDATE musicals SET available_tickets = LAST_INSERT_ID(available_tickets - ?) " +
+        "WHERE id = ? AND available_tickets >= ?",
+        true),
+
+    INSERT_INCOME(
+        "INSERT INTO income_data (amount, transaction_date, category, description) VALUES (?, ?, ?, ?)"),
+
+    // The dashboard's incremental refresh, see IncomeWatermark
+    INCOME_SINCE(
+        "SELECT id, DATE(created_at) AS day, amount FROM income_data WHERE id > ? ORDER BY id"),
+
+    // Same day as income_data.created_at, see IncomeRollups
+    ADD_DAILY_INCOME(
+        "INSERT INTO daily_income (day, category, slot, amount, transactions) VALUES (CURRENT_DATE, ?, ?, ?, 1) " +
+        "ON DUPLICATE KEY UPDATE amount = amount + ?, transactions = transactions + 1"),
+
+    ADD_DAILY_MUSICAL_SALES(
+        "INSERT INTO daily_musical_sales (day, musical_id, revenue, bookings, tickets) VALUES (CURRENT_DATE, ?, ?, 1, ?) " +
+        "ON DUPLICATE KEY UPDATE revenue = revenue + ?, bookings = bookings + 1, tickets = tickets + ?");
+
+    private final String sql;
+    private final boolean returnsGeneratedKeys;
+
+    NamedStatement(String sql) {
+        this(sql, false);
+    }
+
+    NamedStatement(String sql, boolean returnsGeneratedKeys) {
+        this.sql = sql;
+        this.returnsGeneratedKeys = returnsGeneratedKeys;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    PreparedStatement prepare(Connection conn) throws SQLException {
+        return returnsGeneratedKeys
+            ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+            : conn.prepareStatement(sql);
+    }
+}
@@ -0,0 +1,104 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Live view of QueryMetrics and the connection pool, refreshed every second while shown
+public class PerformancePanel extends JPanel {
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final DefaultTableModel tableModel;
+    private final JLabel poolLabel = new JLabel(" ");
+    // Cards stay attached while another one is shown, so only refresh when visible
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> {
+        if (isShowing()) refresh();
+    });
+    // Count per query at the previous refresh, for the rate column
+    private Map<String, Long> previousCounts = new HashMap<>();
+    private long previousRefresh = System.nanoTime();
+
+    public PerformancePanel() {
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JLabel titleLabel = new JLabel("Query Performance");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 0));
+        add(titleLabel, BorderLayout.NORTH);
+
+        String[] columns = {"Query", "Calls", "Rate (/s)", "Mean (ms)", "p50 (ms)", "p99 (ms)", "Max (ms)", "Errors"};
+        tableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(0).setPreferredWidth(220);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
+        bottomPanel.add(poolLabel, BorderLayout.CENTER);
+        JButton resetBtn = new JButton("Reset");
+        resetBtn.addActionListener(e -> {
+            QueryMetrics.reset();
+            previousCounts = new HashMap<>();
+            refresh();
+        });
+        bottomPanel.add(resetBtn, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refresh();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    // Everything read here is in memory, cheap enough for the EDT
+    private void refresh() {
+        long now = System.nanoTime();
+        double seconds = Math.max((now - previousRefresh) / 1e9, 1e-3);
+        List<QueryMetrics.Snapshot> snapshots = QueryMetrics.snapshot();
+        Map<String, Long> counts = new HashMap<>();
+
+        tableModel.setRowCount(0);
+        for (QueryMetrics.Snapshot snapshot : snapshots) {
+            long previous = previousCounts.getOrDefault(snapshot.getName(), 0L);
+            counts.put(snapshot.getName(), snapshot.getCount());
+            tableModel.addRow(new Object[]{
+                snapshot.getName(),
+                snapshot.getCount(),
+                String.format("%.1f", Math.max(snapshot.getCount() - previous, 0) / seconds),
+                millis(snapshot.getMeanNanos()),
+                millis(snapshot.percentileNanos(50)),
+                millis(snapshot.percentileNanos(99)),
+                millis(snapshot.getMaxNanos()),
+                snapshot.getErrors()
+            });
+        }
+        previousCounts = counts;
+        previousRefresh = now;
+
+        ConnectionPool.PoolStats pool = MusicalDataHandler.getPoolStats();
+        poolLabel.setText(String.format(
+            "Connections: %d active, %d idle of %d  |  %d waiting  |  avg wait %.2f ms, max %.2f ms  |  %d timeouts",
+            pool.getActiveConnections(), pool.getIdleConnections(), pool.getMaxSize(),
+            pool.getWaitingThreads(), pool.getAverageWaitMicros() / 1000.0,
+            pool.getMaxWaitMicros() / 1000.0, pool.getBorrowTimeouts()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms for data access, one per logical query name. A query is timed with
+ *
+ *   try (QueryMetrics.Timer timer = QueryMetrics.time("getBookedSeats");
+ *        Connection conn = getConnection()) {
+ *       ...
+ *   } catch (SQLException e) {
+ *       QueryMetrics.recordError("getBookedSeats");
+ *   }
+ *
+ * which covers borrowing the connection as well. The timer is never referenced inside
+ * the block, so methods using this idiom carry @SuppressWarnings("try") to keep
+ * -Xlint:all quiet. Recording never locks: latencies go
+ * into log-linear buckets (8 per power of two of microseconds, so within 12.5%) that
+ * are bumped atomically. See PerformancePanel for the live view.
+ */
+public final class QueryMetrics {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+    // Up to 2^40 us, about 12 days; anything slower lands in the last bucket
+    private static final int BUCKETS = (40 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private QueryMetrics() {
+    }
+
+    public static Timer time(String query) {
+        return new Timer(histogram(query));
+    }
+
+    public static void record(String query, long elapsedNanos) {
+        histogram(query).record(elapsedNanos);
+    }
+
+    public static void recordError(String query) {
+        histogram(query).errors.increment();
+    }
+
+    // Every query seen so far, by name
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        HISTOGRAMS.forEach((name, histogram) -> snapshots.add(histogram.snapshot(name)));
+        snapshots.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return snapshots;
+    }
+
+    // Starts every histogram from zero; recordings made during the reset may be lost
+    public static void reset() {
+        HISTOGRAMS.replaceAll((name, histogram) -> new Histogram());
+    }
+
+    private static Histogram histogram(String query) {
+        Histogram histogram = HISTOGRAMS.get(query);
+        return histogram != null ? histogram : HISTOGRAMS.computeIfAbsent(query, q -> new Histogram());
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+    }
+
+    // The largest value that falls into the bucket
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public static final class Timer implements AutoCloseable {
+        private final Histogram histogram;
+        private final long started = System.nanoTime();
+
+        private Timer(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void close() {
+            histogram.record(System.nanoTime() - started);
+        }
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long elapsedNanos) {
+            buckets.incrementAndGet(bucketOf(elapsedNanos / 1000));
+            totalNanos.add(elapsedNanos);
+            long max = maxNanos.get();
+            while (elapsedNanos > max && !maxNanos.compareAndSet(max, elapsedNanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        Snapshot snapshot(String name) {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new Snapshot(name, counts, totalNanos.sum(), errors.sum(), maxNanos.get());
+        }
+    }
+
+    /**
+     * One histogram at a point in time. The bucket counts are read one by one while
+     * recording goes on, so the count is their sum.
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long errors;
+        private final long maxNanos;
+
+        Snapshot(String name, long[] counts, long totalNanos, long errors, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+            this.errors = errors;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public long getMaxNanos() { return maxNanos; }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        // Upper bound of the bucket holding the given percentile (0 to 100), in nanoseconds
+        public long percentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i) * 1000 + 999, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
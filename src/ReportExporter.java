@@ -0,0 +1,250 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports accounting reports as RFC 4180 CSV, gzipped when the file name ends in .gz.
+ * Rows are streamed from MySQL (a forward-only result set with fetch size
+ * Integer.MIN_VALUE makes Connector/J hand them over one at a time instead of reading
+ * the whole result first) and written through a buffered file channel, so memory use
+ * does not depend on the size of the table.
+ *
+ * The report goes to a temporary file next to the target and is only moved into place
+ * once complete; a cancelled or failed export leaves the target untouched.
+ */
+public final class ReportExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // How often progress is reported
+    private static final int PROGRESS_ROWS = 10_000;
+    private static final long CANCEL_POLL_MILLIS = 100;
+
+    public enum Report {
+        RECEIPTS("Receipts", "receipts",
+            "SELECT r.id AS receipt_id, r.created_at, c.username AS customer, m.name AS musical, " +
+            "r.show_date, r.show_time, r.total_price " +
+            "FROM receipts r " +
+            "JOIN customers c ON r.customer_id = c.id " +
+            "JOIN musicals m ON r.musical_id = m.id " +
+            "ORDER BY r.id"),
+        BOOKED_SEATS("Booked Seats", "booked_seats",
+            "SELECT bs.booking_id AS receipt_id, m.name AS musical, v.name AS venue, s.name AS section, " +
+            "bs.seat_number, bs.show_date, bs.show_time " +
+            "FROM booked_seats bs " +
+            "JOIN musicals m ON bs.musical_id = m.id " +
+            "JOIN venues v ON bs.venue_id = v.id " +
+            "JOIN sections s ON bs.section_id = s.id " +
+            "ORDER BY bs.id"),
+        INCOME("Income", "income_data",
+            "SELECT id, transaction_date, created_at, category, description, amount " +
+            "FROM income_data ORDER BY id");
+
+        private final String label;
+        private final String tableName;
+        private final String query;
+
+        Report(String label, String tableName, String query) {
+            this.label = label;
+            this.tableName = tableName;
+            this.query = query;
+        }
+
+        public String getTableName() { return tableName; }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public interface ProgressListener {
+        // Called every PROGRESS_ROWS rows; estimatedRows is 0 when unknown
+        void progress(long rowsWritten, long estimatedRows);
+    }
+
+    private ReportExporter() {
+    }
+
+    /**
+     * Writes the report to target and returns the number of rows written. Stops with a
+     * CancellationException soon after cancelled returns true, unless the report is
+     * already complete; once this returns, target has been written.
+     */
+    @SuppressWarnings("try")
+    public static long export(Report report, Path target, ProgressListener listener,
+                              BooleanSupplier cancelled) throws SQLException, IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".part");
+        boolean gzip = target.getFileName().toString().endsWith(".gz");
+
+        try (QueryMetrics.Timer timer = QueryMetrics.time("export" + report.name());
+             Connection conn = MusicalDataHandler.getConnection()) {
+            long estimatedRows = estimateRows(conn, report);
+            long rows;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING);
+                 Writer out = openWriter(channel, gzip)) {
+                rows = writeRows(conn, report, out, estimatedRows, listener, cancelled);
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Export cancelled");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } catch (SQLException e) {
+            QueryMetrics.recordError("export" + report.name());
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Writer openWriter(FileChannel channel, boolean gzip) throws IOException {
+        OutputStream stream = Channels.newOutputStream(channel);
+        if (gzip) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // InnoDB's row estimate, instant but can be off by a fair bit; only used for progress
+    private static long estimateRows(Connection conn, Report report) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                 "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            pstmt.setString(1, report.getTableName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static long writeRows(Connection conn, Report report, Writer out, long estimatedRows,
+                                  ProgressListener listener, BooleanSupplier cancelled)
+            throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             CancelWatch watch = new CancelWatch(stmt, cancelled)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(report.query)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                StringBuilder line = new StringBuilder(256);
+
+                for (int i = 1; i <= columns; i++) {
+                    appendField(line, meta.getColumnLabel(i), i);
+                }
+                out.append(line).append("\r\n");
+
+                long rows = 0;
+                while (rs.next()) {
+                    line.setLength(0);
+                    for (int i = 1; i <= columns; i++) {
+                        // Strings as MySQL sends them, so decimals keep their exact value
+                        appendField(line, rs.getString(i), i);
+                    }
+                    out.append(line).append("\r\n");
+
+                    if (++rows % PROGRESS_ROWS == 0) {
+                        listener.progress(rows, estimatedRows);
+                    }
+                }
+                listener.progress(rows, estimatedRows);
+                return rows;
+            } catch (SQLException e) {
+                if (watch.fired()) {
+                    throw new CancellationException("Export cancelled");
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Kills the query from another thread once cancelled returns true, so a cancel is
+     * seen even while MySQL is still working out the first row. Closing it waits for a
+     * cancel in progress, so none can reach the connection after it goes back to the pool.
+     */
+    private static final class CancelWatch implements AutoCloseable {
+        private final Statement stmt;
+        private final BooleanSupplier cancelled;
+        private boolean closed;
+        private volatile boolean fired;
+
+        CancelWatch(Statement stmt, BooleanSupplier cancelled) {
+            this.stmt = stmt;
+            this.cancelled = cancelled;
+            AsyncDataAccess.executor().execute(this::watch);
+        }
+
+        private void watch() {
+            try {
+                while (true) {
+                    synchronized (this) {
+                        if (closed) return;
+                        if (cancelled.getAsBoolean()) {
+                            fired = true;
+                            stmt.cancel();
+                            return;
+                        }
+                    }
+                    TimeUnit.MILLISECONDS.sleep(CANCEL_POLL_MILLIS);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean fired() {
+            return fired;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+    }
+
+    // Quotes the field only when it holds a comma, quote or line break; null is empty
+    private static void appendField(StringBuilder line, String value, int column) {
+        if (column > 1) {
+            line.append(',');
+        }
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,128 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Atomically reserves a set of seats for one performance before the booking is written
+ * to the database. A claim either takes every requested seat or none of them, so losing
+ * customers are turned away in-process instead of by the unique_seat key after a
+ * receipt row has already been written.
+ */
+public class SeatClaimEngine {
+
+    private final SeatInventory inventory;
+
+    public SeatClaimEngine(SeatInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public ClaimResult claim(int musicalId, LocalDate showDate, String showTime,
+                             List<MusicalDataHandler.BookedSeat> seats) {
+        // Collect the bits to set per (section, word). Claims always visit words in the same
+        // order, which keeps competing multi-seat claims from repeatedly undoing each other.
+        TreeMap<WordKey, WordClaim> words = new TreeMap<>();
+        for (MusicalDataHandler.BookedSeat seat : seats) {
+            SeatInventory.SectionSeats section = inventory
+                .getVenueSeats(musicalId, seat.getVenueId(), showDate, showTime)
+                .getSection(seat.getSectionId());
+            int index = section != null ? section.indexOf(seat.getSeatNumber()) : -1;
+            if (index < 1) {
+                return ClaimResult.rejected(Collections.singletonList(seat.getSeatNumber()));
+            }
+            int bit = index - 1;
+            WordKey key = new WordKey(seat.getVenueId(), seat.getSectionId(), bit >>> 6);
+            words.computeIfAbsent(key, k -> new WordClaim(section, k.word)).mask |= 1L << bit;
+        }
+
+        List<WordClaim> applied = new ArrayList<>(words.size());
+        for (WordClaim word : words.values()) {
+            if (!word.section.trySetBits(word.word, word.mask)) {
+                List<String> conflicts = word.section.takenSeats(word.word, word.mask);
+                release(applied);
+                return ClaimResult.rejected(conflicts);
+            }
+            applied.add(word);
+        }
+        return ClaimResult.claimed(new Claim(applied));
+    }
+
+    private static void release(List<WordClaim> applied) {
+        for (WordClaim word : applied) {
+            word.section.clearBits(word.word, word.mask);
+        }
+    }
+
+    /**
+     * Seats held by a successful claim. They stay taken once the booking commits;
+     * call release() if the booking is abandoned or fails.
+     */
+    public static class Claim {
+        private final List<WordClaim> words;
+        private boolean released = false;
+
+        private Claim(List<WordClaim> words) {
+            this.words = words;
+        }
+
+        public synchronized void release() {
+            if (!released) {
+                released = true;
+                SeatClaimEngine.release(words);
+            }
+        }
+    }
+
+    public static class ClaimResult {
+        private final Claim claim;
+        private final List<String> conflictingSeats;
+
+        private ClaimResult(Claim claim, List<String> conflictingSeats) {
+            this.claim = claim;
+            this.conflictingSeats = conflictingSeats;
+        }
+
+        static ClaimResult claimed(Claim claim) {
+            return new ClaimResult(claim, Collections.emptyList());
+        }
+
+        static ClaimResult rejected(List<String> conflictingSeats) {
+            return new ClaimResult(null, conflictingSeats);
+        }
+
+        public boolean isClaimed() { return claim != null; }
+        public Claim getClaim() { return claim; }
+        public List<String> getConflictingSeats() { return conflictingSeats; }
+    }
+
+    private static class WordClaim {
+        final SeatInventory.SectionSeats section;
+        final int word;
+        long mask;
+
+        WordClaim(SeatInventory.SectionSeats section, int word) {
+            this.section = section;
+            this.word = word;
+        }
+    }
+
+    private static final class WordKey implements Comparable<WordKey> {
+        final int venueId;
+        final int sectionId;
+        final int word;
+
+        WordKey(int venueId, int sectionId, int word) {
+            this.venueId = venueId;
+            this.sectionId = sectionId;
+            this.word = word;
+        }
+
+        @Override
+        public int compareTo(WordKey other) {
+            if (venueId != other.venueId) return Integer.compare(venueId, other.venueId);
+            if (sectionId != other.sectionId) return Integer.compare(sectionId, other.sectionId);
+            return Integer.compare(word, other.word);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Temporary seat holds taken when a customer confirms their seat selection.
+ * A hold keeps the seats claimed in the SeatInventory until the booking is made,
+ * the customer abandons it, or the TTL runs out. Expiry is driven by a single
+ * shared TimingWheel, so an open hold costs one small object and no thread.
+ */
+public class SeatHoldManager {
+
+    public static final long DEFAULT_TTL_SECONDS = Long.getLong("booking.holdTtlSeconds", 600);
+
+    // Holds are minutes long, a quarter-second tick is plenty of resolution
+    private static final long TICK_MILLIS = 250;
+
+    private final SeatClaimEngine claimEngine;
+    private final long ttlSeconds;
+    private final TimingWheel wheel = new TimingWheel("seat-hold-expiry", TICK_MILLIS, TimeUnit.MILLISECONDS);
+    private final AtomicInteger expiredCount = new AtomicInteger();
+
+    public SeatHoldManager(SeatClaimEngine claimEngine) {
+        this(claimEngine, DEFAULT_TTL_SECONDS);
+    }
+
+    public SeatHoldManager(SeatClaimEngine claimEngine, long ttlSeconds) {
+        this.claimEngine = claimEngine;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public HoldResult hold(int musicalId, LocalDate showDate, String showTime,
+                           List<MusicalDataHandler.BookedSeat> seats) {
+        SeatClaimEngine.ClaimResult result = claimEngine.claim(musicalId, showDate, showTime, seats);
+        if (!result.isClaimed()) {
+            return new HoldResult(null, result.getConflictingSeats());
+        }
+        SeatHold hold = new SeatHold(result.getClaim(), musicalId, showDate,
+            SeatInventory.normalizeShowTime(showTime), seatKeys(seats));
+        hold.timeout = wheel.schedule(hold::expire, ttlSeconds, TimeUnit.SECONDS);
+        return new HoldResult(hold, result.getConflictingSeats());
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public int getActiveHoldCount() {
+        return wheel.getActiveCount();
+    }
+
+    public int getExpiredHoldCount() {
+        return expiredCount.get();
+    }
+
+    private static Set<String> seatKeys(List<MusicalDataHandler.BookedSeat> seats) {
+        Set<String> keys = new HashSet<>();
+        for (MusicalDataHandler.BookedSeat seat : seats) {
+            keys.add(seat.getVenueId() + "/" + seat.getSectionId() + "/" + seat.getSeatNumber());
+        }
+        return keys;
+    }
+
+    public class SeatHold {
+        private static final int ACTIVE = 0;
+        private static final int CONVERTED = 1;
+        private static final int RELEASED = 2;
+        private static final int EXPIRED = 3;
+
+        private final SeatClaimEngine.Claim claim;
+        private final int musicalId;
+        private final LocalDate showDate;
+        private final String showTime;
+        private final Set<String> seatKeys;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+        private volatile TimingWheel.Timeout timeout;
+
+        private SeatHold(SeatClaimEngine.Claim claim, int musicalId, LocalDate showDate, String showTime,
+                         Set<String> seatKeys) {
+            this.claim = claim;
+            this.musicalId = musicalId;
+            this.showDate = showDate;
+            this.showTime = showTime;
+            this.seatKeys = seatKeys;
+        }
+
+        // True if the hold is for exactly these seats of this performance
+        public boolean covers(int musicalId, LocalDate showDate, String showTime,
+                              List<MusicalDataHandler.BookedSeat> seats) {
+            return this.musicalId == musicalId && this.showDate.equals(showDate)
+                && this.showTime.equals(SeatInventory.normalizeShowTime(showTime))
+                && seatKeys.equals(seatKeys(seats));
+        }
+
+        /**
+         * Hands the held seats over to a booking. Returns null if the hold has already
+         * expired or been released, in which case the seats must be claimed again.
+         * The caller owns the returned claim and must release it if the booking fails.
+         */
+        public SeatClaimEngine.Claim convert() {
+            if (!state.compareAndSet(ACTIVE, CONVERTED)) {
+                return null;
+            }
+            cancelTimeout();
+            return claim;
+        }
+
+        public void release() {
+            if (state.compareAndSet(ACTIVE, RELEASED)) {
+                cancelTimeout();
+                claim.release();
+            }
+        }
+
+        public boolean isActive() {
+            return state.get() == ACTIVE;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(ACTIVE, EXPIRED)) {
+                claim.release();
+                expiredCount.incrementAndGet();
+            }
+        }
+
+        private void cancelTimeout() {
+            TimingWheel.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+
+    public static class HoldResult {
+        private final SeatHold hold;
+        private final List<String> conflictingSeats;
+
+        private HoldResult(SeatHold hold, List<String> conflictingSeats) {
+            this.hold = hold;
+            this.conflictingSeats = conflictingSeats;
+        }
+
+        public boolean isHeld() { return hold != null; }
+        public SeatHold getHold() { return hold; }
+        public List<String> getConflictingSeats() { return conflictingSeats; }
+    }
+}
@@ -0,0 +1,336 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory seat availability, one bitset per (musical, venue, section, show date, show time).
+ * A venue's bitsets are loaded with a single query the first time a performance is shown.
+ * A set bit means the seat is taken, either booked in the database or claimed in-process
+ * through SeatClaimEngine by a booking that is about to commit.
+ *
+ * Reloads re-read the venue's sections and rebuild each bitset from the booked rows plus
+ * whatever is claimed in-process, so seats deleted in the database come free again.
+ * Performances are dropped once their show date has passed.
+ */
+public class SeatInventory {
+
+    // Bookings made from other kiosks only show up after the next reload
+    private static final long RELOAD_INTERVAL_MILLIS = 30_000;
+
+    private final MusicalDataHandler dataHandler;
+    private final Map<PerformanceKey, VenueSeats> performances = new ConcurrentHashMap<>();
+    private volatile LocalDate prunedOn;
+
+    public SeatInventory(MusicalDataHandler dataHandler) {
+        this.dataHandler = dataHandler;
+    }
+
+    public VenueSeats getVenueSeats(int musicalId, MusicalDataHandler.VenueWithSections venue,
+                                    LocalDate showDate, String showTime) {
+        return getVenueSeats(musicalId, venue.getId(), venue.getSections(), showDate, showTime);
+    }
+
+    // Looks the venue's sections up from the database if the performance has not been loaded yet
+    public VenueSeats getVenueSeats(int musicalId, int venueId, LocalDate showDate, String showTime) {
+        return getVenueSeats(musicalId, venueId, null, showDate, showTime);
+    }
+
+    private VenueSeats getVenueSeats(int musicalId, int venueId, List<MusicalDataHandler.VenueSection> sections,
+                                     LocalDate showDate, String showTime) {
+        PerformanceKey key = new PerformanceKey(musicalId, venueId, showDate, normalizeShowTime(showTime));
+        VenueSeats seats = performances.get(key);
+        if (seats == null) {
+            List<MusicalDataHandler.VenueSection> venueSections =
+                sections != null ? sections : dataHandler.getVenueSections(venueId);
+            seats = performances.computeIfAbsent(key, k -> new VenueSeats(venueSections));
+            pruneEndedPerformances();
+        }
+        if (seats.needsReload()) {
+            loadBookedSeats(key, seats);
+        }
+        return seats;
+    }
+
+    // Forces the next access to re-read the performance from the database
+    public void invalidate(int musicalId, int venueId, LocalDate showDate, String showTime) {
+        VenueSeats seats = performances.get(
+            new PerformanceKey(musicalId, venueId, showDate, normalizeShowTime(showTime)));
+        if (seats != null) {
+            seats.loadedAt = 0;
+        }
+    }
+
+    // Makes every loaded performance at the venue re-read its sections on next access
+    public void invalidateVenue(int venueId) {
+        performances.forEach((key, seats) -> {
+            if (key.venueId == venueId) {
+                seats.loadedAt = 0;
+            }
+        });
+    }
+
+    // At most once a day, when a performance is first loaded
+    private void pruneEndedPerformances() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(prunedOn)) {
+            return;
+        }
+        prunedOn = today;
+        performances.keySet().removeIf(key -> key.showDate.isBefore(today));
+    }
+
+    @SuppressWarnings("try")
+    private void loadBookedSeats(PerformanceKey key, VenueSeats seats) {
+        synchronized (seats) {
+            if (!seats.needsReload()) {
+                return; // Another thread loaded it while we waited
+            }
+            if (seats.loadedAt != 0) {
+                // Sections may have been added, removed or resized since the last load
+                seats.updateSections(dataHandler.getVenueSections(key.venueId));
+            }
+            BookingEvents.BookedSeatsFetch event = new BookingEvents.BookedSeatsFetch();
+            event.begin();
+            int rows = 0;
+            try (QueryMetrics.Timer timer = QueryMetrics.time("loadBookedSeats");
+                 Connection conn = MusicalDataHandler.getConnection()) {
+                PreparedStatement pstmt = MusicalDataHandler.prepare(conn, NamedStatement.PERFORMANCE_BOOKED_SEATS);
+                pstmt.setInt(1, key.musicalId);
+                pstmt.setInt(2, key.venueId);
+                pstmt.setDate(3, java.sql.Date.valueOf(key.showDate));
+                pstmt.setString(4, key.showTime + "%");
+
+                Map<Integer, long[]> booked = new HashMap<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        int sectionId = rs.getInt("section_id");
+                        SectionSeats section = seats.getSection(sectionId);
+                        int index = section != null ? section.indexOf(rs.getString("seat_number")) : -1;
+                        if (index >= 1) {
+                            int bit = index - 1;
+                            booked.computeIfAbsent(sectionId, id -> new long[section.words.length()])[bit >>> 6] |= 1L << bit;
+                        }
+                    }
+                }
+                seats.sections.forEach((sectionId, section) ->
+                    section.applyBooked(booked.getOrDefault(sectionId, new long[section.words.length()])));
+                seats.loadedAt = System.currentTimeMillis();
+            } catch (SQLException e) {
+                QueryMetrics.recordError("loadBookedSeats");
+                event.failed = true;
+                e.printStackTrace();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.musicalId = key.musicalId;
+                event.venueId = key.venueId;
+                event.showDate = key.showDate.toString();
+                event.showTime = key.showTime;
+                event.seats = rows;
+                event.commit();
+            }
+        }
+    }
+
+    // Show times are stored as HH:mm or HH:mm:ss, compare on the HH:mm part only
+    static String normalizeShowTime(String showTime) {
+        return showTime.length() > 5 ? showTime.substring(0, 5) : showTime;
+    }
+
+    public static class VenueSeats {
+        private final Map<Integer, SectionSeats> sections = new ConcurrentHashMap<>();
+        private volatile long loadedAt = 0;
+
+        VenueSeats(List<MusicalDataHandler.VenueSection> venueSections) {
+            for (MusicalDataHandler.VenueSection section : venueSections) {
+                sections.put(section.getId(), new SectionSeats(section.getName(), section.getCapacity()));
+            }
+        }
+
+        /**
+         * Swaps in a fresh bitset for every section whose name or capacity changed. Claims
+         * still hold the old one, so seats they claimed look taken until the reload that
+         * follows has settled them against the database.
+         */
+        void updateSections(List<MusicalDataHandler.VenueSection> venueSections) {
+            if (venueSections.isEmpty()) {
+                return; // Failed to read them, keep what we have
+            }
+            Map<Integer, SectionSeats> current = new HashMap<>(sections);
+            for (MusicalDataHandler.VenueSection section : venueSections) {
+                SectionSeats seats = current.remove(section.getId());
+                if (seats == null) {
+                    sections.put(section.getId(), new SectionSeats(section.getName(), section.getCapacity()));
+                } else if (!seats.sectionName.equals(section.getName()) || seats.capacity != section.getCapacity()) {
+                    sections.put(section.getId(), seats.resized(section.getName(), section.getCapacity()));
+                }
+            }
+            sections.keySet().removeAll(current.keySet());
+        }
+
+        boolean needsReload() {
+            return System.currentTimeMillis() - loadedAt > RELOAD_INTERVAL_MILLIS;
+        }
+
+        public SectionSeats getSection(int sectionId) {
+            return sections.get(sectionId);
+        }
+
+        public int freeCount() {
+            int free = 0;
+            for (SectionSeats section : sections.values()) {
+                free += section.freeCount();
+            }
+            return free;
+        }
+    }
+
+    /**
+     * Taken seats of one section as a bitset. Seat numbers are the section name followed
+     * by a 1-based index (e.g. "Orchestra12"), which maps to bit index - 1.
+     * All updates are compare-and-set on the packed 64-seat words, readers never lock.
+     */
+    public static class SectionSeats {
+        private final String sectionName;
+        private final int capacity;
+        private final AtomicLongArray words;
+        private final AtomicInteger takenCount = new AtomicInteger();
+        // Bits the last reload found booked in the database, guarded by the VenueSeats lock
+        private long[] booked;
+
+        SectionSeats(String sectionName, int capacity) {
+            this.sectionName = sectionName;
+            this.capacity = capacity;
+            this.words = new AtomicLongArray((capacity + 63) >>> 6);
+            this.booked = new long[words.length()];
+        }
+
+        // Same taken seats by index, all treated as booked so the next reload settles them
+        SectionSeats resized(String name, int newCapacity) {
+            SectionSeats seats = new SectionSeats(name, newCapacity);
+            for (int word = 0; word < Math.min(words.length(), seats.words.length()); word++) {
+                int bitsInWord = Math.min(64, newCapacity - (word << 6));
+                long bits = words.get(word) & (bitsInWord == 64 ? -1L : (1L << bitsInWord) - 1);
+                seats.words.set(word, bits);
+                seats.booked[word] = bits;
+                seats.takenCount.addAndGet(Long.bitCount(bits));
+            }
+            return seats;
+        }
+
+        public String getSectionName() { return sectionName; }
+        public int getCapacity() { return capacity; }
+
+        public String seatNumber(int index) {
+            return sectionName + index;
+        }
+
+        // Returns the 1-based seat index, or -1 if the seat number does not belong to this section
+        public int indexOf(String seatNumber) {
+            if (seatNumber == null || !seatNumber.startsWith(sectionName)) {
+                return -1;
+            }
+            try {
+                int index = Integer.parseInt(seatNumber.substring(sectionName.length()));
+                return index >= 1 && index <= capacity ? index : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        // Seats past the capacity are never free, the section may have shrunk since
+        public boolean isFree(int index) {
+            if (index < 1 || index > capacity) {
+                return false;
+            }
+            int bit = index - 1;
+            return (words.get(bit >>> 6) & (1L << bit)) == 0;
+        }
+
+        public int freeCount() {
+            return capacity - takenCount.get();
+        }
+
+        /**
+         * Takes the database's booked seats as of a reload. Seats booked at the previous
+         * reload and gone now are freed; every other set bit is left alone, since it is a
+         * claim that has not committed yet or committed after the rows were read.
+         */
+        void applyBooked(long[] nowBooked) {
+            for (int word = 0; word < nowBooked.length; word++) {
+                long freed = booked[word] & ~nowBooked[word];
+                long set = nowBooked[word];
+                long previous = words.getAndAccumulate(word, 0L, (current, unused) -> (current & ~freed) | set);
+                takenCount.addAndGet(Long.bitCount((previous & ~freed) | set) - Long.bitCount(previous));
+            }
+            booked = nowBooked;
+        }
+
+        // Sets all bits in mask, or none of them if any is already set
+        boolean trySetBits(int word, long mask) {
+            while (true) {
+                long current = words.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+                if (words.compareAndSet(word, current, current | mask)) {
+                    takenCount.addAndGet(Long.bitCount(mask));
+                    return true;
+                }
+            }
+        }
+
+        void clearBits(int word, long mask) {
+            long previous = words.getAndAccumulate(word, mask, (current, m) -> current & ~m);
+            takenCount.addAndGet(-Long.bitCount(previous & mask));
+        }
+
+        // Seat numbers in mask that are currently taken
+        List<String> takenSeats(int word, long mask) {
+            List<String> taken = new ArrayList<>();
+            long bits = words.get(word) & mask;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                taken.add(seatNumber((word << 6) + bit + 1));
+                bits &= bits - 1;
+            }
+            return taken;
+        }
+    }
+
+    private static final class PerformanceKey {
+        final int musicalId;
+        final int venueId;
+        final LocalDate showDate;
+        final String showTime;
+
+        PerformanceKey(int musicalId, int venueId, LocalDate showDate, String showTime) {
+            this.musicalId = musicalId;
+            this.venueId = venueId;
+            this.showDate = showDate;
+            this.showTime = showTime;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PerformanceKey)) return false;
+            PerformanceKey other = (PerformanceKey) o;
+            return musicalId == other.musicalId && venueId == other.venueId
+                && showDate.equals(other.showDate) && showTime.equals(other.showTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(musicalId, venueId, showDate, showTime);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Seat map drawn by a single component instead of one button per seat.
+ * Every seat is one byte in a flat state array; painting only walks the rows inside
+ * the clip, clicks are mapped back to seats arithmetically, and a toggle repaints
+ * just that seat's cell. Memory and paint cost stay flat for stadium-sized venues.
+ */
+public class SeatMapComponent extends JComponent implements Scrollable {
+
+    private static final byte FREE = 0;
+    private static final byte TAKEN = 1;
+    private static final byte SELECTED = 2;
+
+    private static final int COLUMNS = 20;
+    private static final int CELL = 30;
+    private static final int SEAT = 26;
+    private static final int MARGIN = 10;
+    private static final int VENUE_HEADER_HEIGHT = 28;
+    private static final int TITLE_HEIGHT = 22;
+    private static final int BLOCK_GAP = 14;
+
+    private static final Color FREE_COLOR = new Color(225, 225, 225);
+    private static final Color SELECTED_COLOR = Color.GREEN;
+    private static final Color TAKEN_COLOR = Color.RED;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private byte[] states = new byte[0];
+    private int height = MARGIN;
+    private int maxSelection = Integer.MAX_VALUE;
+    private int selectedCount = 0;
+
+    public SeatMapComponent() {
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setFont(UIManager.getFont("Label.font"));
+        ToolTipManager.sharedInstance().registerComponent(this);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isLeftMouseButton(e)) {
+                    toggle(seatAt(e.getX(), e.getY()));
+                }
+            }
+        });
+    }
+
+    // Sections are stacked in the order they are added, each venue under its own header
+    public void addVenue(MusicalDataHandler.VenueWithSections venue, SeatInventory.VenueSeats venueSeats) {
+        boolean first = true;
+        int seatCount = states.length;
+        for (MusicalDataHandler.VenueSection section : venue.getSections()) {
+            SeatInventory.SectionSeats seats = venueSeats.getSection(section.getId());
+            if (seats == null) continue;
+            Block block = new Block(first ? venue.getName() : null, venue.getId(), section, seats, seatCount);
+            first = false;
+
+            if (block.venueName != null) {
+                height += VENUE_HEADER_HEIGHT;
+            }
+            block.titleY = height;
+            block.gridY = height + TITLE_HEIGHT;
+            block.rows = (section.getCapacity() + COLUMNS - 1) / COLUMNS;
+            height = block.gridY + block.rows * CELL + BLOCK_GAP;
+            seatCount += section.getCapacity();
+            blocks.add(block);
+        }
+
+        int start = states.length;
+        states = Arrays.copyOf(states, seatCount);
+        for (int b = blocks.size() - 1; b >= 0 && blocks.get(b).seatOffset >= start; b--) {
+            Block block = blocks.get(b);
+            for (int i = 1; i <= block.section.getCapacity(); i++) {
+                states[block.seatOffset + i - 1] = block.seats.isFree(i) ? FREE : TAKEN;
+            }
+        }
+        revalidate();
+        repaint();
+    }
+
+    public void setMaxSelection(int maxSelection) {
+        this.maxSelection = maxSelection;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    public int getFreeCount() {
+        int free = 0;
+        for (byte state : states) {
+            if (state != TAKEN) free++;
+        }
+        return free;
+    }
+
+    public List<MusicalDataHandler.BookedSeat> getSelectedSeats() {
+        List<MusicalDataHandler.BookedSeat> selected = new ArrayList<>(selectedCount);
+        for (Block block : blocks) {
+            for (int i = 0; i < block.section.getCapacity(); i++) {
+                if (states[block.seatOffset + i] == SELECTED) {
+                    selected.add(new MusicalDataHandler.BookedSeat(
+                        block.seats.seatNumber(i + 1),
+                        block.section.getBasePrice(),
+                        block.venueId,
+                        block.section.getId()
+                    ));
+                }
+            }
+        }
+        return selected;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listenerList.add(ChangeListener.class, listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listenerList.remove(ChangeListener.class, listener);
+    }
+
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listenerList.getListeners(ChangeListener.class)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    private void toggle(int seat) {
+        if (seat < 0 || states[seat] == TAKEN) {
+            return;
+        }
+        if (states[seat] == SELECTED) {
+            states[seat] = FREE;
+            selectedCount--;
+        } else {
+            if (selectedCount >= maxSelection) {
+                JOptionPane.showMessageDialog(this, "You can only select " + maxSelection + " seats.");
+                return;
+            }
+            states[seat] = SELECTED;
+            selectedCount++;
+        }
+        repaint(cellBounds(seat));
+        fireStateChanged();
+    }
+
+    // Global seat index under the point, or -1 for headers, gaps and empty cells
+    private int seatAt(int x, int y) {
+        Block block = blockAt(y);
+        if (block == null || y < block.gridY || x < MARGIN) {
+            return -1;
+        }
+        int column = (x - MARGIN) / CELL;
+        int row = (y - block.gridY) / CELL;
+        if (column >= COLUMNS || row >= block.rows
+                || (x - MARGIN) % CELL >= SEAT || (y - block.gridY) % CELL >= SEAT) {
+            return -1;
+        }
+        int index = row * COLUMNS + column;
+        return index < block.section.getCapacity() ? block.seatOffset + index : -1;
+    }
+
+    private Block blockAt(int y) {
+        int index = blockIndexAt(y);
+        return index < 0 ? null : blocks.get(index);
+    }
+
+    // Last block whose title starts at or above y, found by binary search
+    private int blockIndexAt(int y) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).titleY <= y) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private Rectangle cellBounds(int seat) {
+        for (Block block : blocks) {
+            int index = seat - block.seatOffset;
+            if (index >= 0 && index < block.section.getCapacity()) {
+                return new Rectangle(MARGIN + (index % COLUMNS) * CELL,
+                    block.gridY + (index / COLUMNS) * CELL, SEAT, SEAT);
+            }
+        }
+        return new Rectangle();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        FontMetrics metrics = g.getFontMetrics();
+        int clipBottom = clip.y + clip.height;
+
+        for (int b = Math.max(0, blockIndexAt(clip.y)); b < blocks.size(); b++) {
+            Block block = blocks.get(b);
+            int top = block.venueName != null ? block.titleY - VENUE_HEADER_HEIGHT : block.titleY;
+            if (top >= clipBottom) {
+                break;
+            }
+
+            if (block.venueName != null) {
+                g.setColor(Color.DARK_GRAY);
+                g.setFont(getFont().deriveFont(Font.BOLD, getFont().getSize2D() + 2));
+                g.drawString(block.venueName, MARGIN, top + VENUE_HEADER_HEIGHT - 8);
+                g.setFont(getFont());
+            }
+            g.setColor(Color.BLACK);
+            g.drawString(block.section.getName() + " - £" + block.section.getBasePrice(),
+                MARGIN, block.titleY + metrics.getAscent() + 2);
+
+            // Only the rows that intersect the clip
+            int firstRow = Math.max(0, (clip.y - block.gridY) / CELL);
+            int lastRow = Math.min(block.rows - 1, (clipBottom - block.gridY) / CELL);
+            int capacity = block.section.getCapacity();
+            for (int row = firstRow; row <= lastRow; row++) {
+                int y = block.gridY + row * CELL;
+                for (int column = 0; column < COLUMNS; column++) {
+                    int index = row * COLUMNS + column;
+                    if (index >= capacity) break;
+                    g.setColor(switch (states[block.seatOffset + index]) {
+                        case TAKEN -> TAKEN_COLOR;
+                        case SELECTED -> SELECTED_COLOR;
+                        default -> FREE_COLOR;
+                    });
+                    g.fillRoundRect(MARGIN + column * CELL, y, SEAT, SEAT, 6, 6);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int seat = seatAt(e.getX(), e.getY());
+        if (seat < 0) return null;
+        for (Block block : blocks) {
+            int index = seat - block.seatOffset;
+            if (index >= 0 && index < block.section.getCapacity()) {
+                return block.seats.seatNumber(index + 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(MARGIN * 2 + COLUMNS * CELL, height + MARGIN);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(size.width, Math.min(size.height, 500));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? CELL : SEAT;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL
+            ? Math.max(CELL, visibleRect.height - CELL)
+            : Math.max(CELL, visibleRect.width - CELL);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    private static class Block {
+        final String venueName;
+        final int venueId;
+        final MusicalDataHandler.VenueSection section;
+        final SeatInventory.SectionSeats seats;
+        final int seatOffset;
+        int titleY;
+        int gridY;
+        int rows;
+
+        Block(String venueName, int venueId, MusicalDataHandler.VenueSection section,
+              SeatInventory.SectionSeats seats, int seatOffset) {
+            this.venueName = venueName;
+            this.venueId = venueId;
+            this.section = section;
+            this.seats = seats;
+            this.seatOffset = seatOffset;
+        }
+    }
+}
@@ -3,28 +3,31 @@ import java.util.*;
 import javax.swing.JLabel;
 import javax.swing.*;
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
 
 public class SeatSelectionPanel extends JPanel {
     private final MusicalDataHandler dataHandler;
     private final String musicalName;
     private final String showTime;
     private final int totalTickets;
-    private final Map<JToggleButton, SeatInfo> seatButtons;
-    private int selectedSeatsCount;
+    private SeatMapComponent seatMap;
     private final JLabel selectionCountLabel;
     private final LocalDate showDate;
+    private final int musicalId;
+    private final AsyncDataAccess.Loader loader = new AsyncDataAccess.Loader();
+    // Open until the seat map is shown, the load fails or the dialog closes; EDT only
+    private BookingEvents.SeatMapLoad loadEvent = new BookingEvents.SeatMapLoad();
     
     public SeatSelectionPanel(MusicalDataHandler dataHandler, String musicalName, 
                             String showTime, int totalTickets, LocalDate showDate) {
+        loadEvent.begin();
         this.dataHandler = dataHandler;
         this.musicalName = musicalName;
         this.showTime = showTime;
         this.totalTickets = totalTickets;
         this.showDate = showDate;
-        this.seatButtons = new HashMap<>();
-        this.selectedSeatsCount = 0;
+
+        MusicalDataHandler.Musical musical = dataHandler.getMusicalByName(musicalName);
+        this.musicalId = musical != null ? musical.getId() : -1;
         
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -36,20 +39,25 @@ public class SeatSelectionPanel extends JPanel {
         headerPanel.add(selectionCountLabel, BorderLayout.EAST);
         add(headerPanel, BorderLayout.NORTH);
         
-        // Create scrollable seat layout
-        JPanel mainPanel = new JPanel();
-        mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
-        
-        // Get venues and sections for this musical
-        java.util.List<MusicalDataHandler.VenueWithSections> venues = dataHandler.getVenuesForMusical(musicalName);
-        for (MusicalDataHandler.VenueWithSections venue : venues) {
-            mainPanel.add(createVenuePanel(venue));
-            mainPanel.add(Box.createVerticalStrut(20));
-        }
-        
-        JScrollPane scrollPane = new JScrollPane(mainPanel);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        add(scrollPane, BorderLayout.CENTER);
+        // Create scrollable seat layout, one painted component for every venue's seats.
+        // Venues and booked seats are loaded in the background so the dialog opens at once.
+        JLabel loadingLabel = new JLabel("Loading seat map...", SwingConstants.CENTER);
+        add(loadingLabel, BorderLayout.CENTER);
+        loader.load(this::loadVenueSeats, venueSeats -> {
+            seatMap = createSeatMap(venueSeats);
+            remove(loadingLabel);
+            add(new JScrollPane(seatMap), BorderLayout.CENTER);
+            revalidate();
+            repaint();
+            int freeSeats = 0;
+            for (SeatInventory.VenueSeats seats : venueSeats.values()) {
+                freeSeats += seats.freeCount();
+            }
+            finishLoadEvent("shown", venueSeats.size(), freeSeats);
+        }, e -> {
+            loadingLabel.setText("Could not load the seat map: " + e.getMessage());
+            finishLoadEvent("failed", 0, 0);
+        });
         
         // Create legend
         add(createLegendPanel(), BorderLayout.SOUTH);
@@ -57,66 +65,53 @@ public class SeatSelectionPanel extends JPanel {
         
     }
     
-    private JPanel createVenuePanel(MusicalDataHandler.VenueWithSections venue) {
-        JPanel venuePanel = new JPanel(new BorderLayout());
-        venuePanel.setBorder(BorderFactory.createTitledBorder(venue.getName()));
-        
-        JPanel sectionsPanel = new JPanel(new GridLayout(0, 1, 5, 15));
-        
-        for (MusicalDataHandler.VenueSection section : venue.getSections()) {
-            JPanel sectionPanel = createSectionPanel(section, venue.getId());
-            sectionsPanel.add(sectionPanel);
+    @Override
+    public void removeNotify() {
+        // Dialog closed before the seats finished loading
+        loader.cancel();
+        finishLoadEvent("cancelled", 0, 0);
+        super.removeNotify();
+    }
+
+    private void finishLoadEvent(String outcome, int venues, int freeSeats) {
+        BookingEvents.SeatMapLoad event = loadEvent;
+        if (event == null) {
+            return;
+        }
+        loadEvent = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.musicalId = musicalId;
+            event.musical = musicalName;
+            event.showDate = showDate.toString();
+            event.showTime = SeatInventory.normalizeShowTime(showTime);
+            event.venues = venues;
+            event.freeSeats = freeSeats;
+            event.outcome = outcome;
+            event.commit();
         }
-        
-        venuePanel.add(sectionsPanel, BorderLayout.CENTER);
-        return venuePanel;
     }
-    
-    private JPanel createSectionPanel(MusicalDataHandler.VenueSection section, int venueId) {
-        JPanel sectionPanel = new JPanel(new BorderLayout());
-        sectionPanel.setBorder(BorderFactory.createTitledBorder(
-            section.getName() + " - £" + section.getBasePrice()));
-        
-        JPanel seatsPanel = new JPanel(new GridLayout(0, 10, 2, 2));
-        java.util.List<String> bookedSeats = dataHandler.getBookedSeats(
-            musicalName, venueId, section.getId(), showDate, showTime);
-        
-        for (int i = 1; i <= section.getCapacity(); i++) {
-            String seatNumber = String.format("%s%d", section.getName(), i);
-            JToggleButton seatButton = new JToggleButton();
-            seatButton.setPreferredSize(new Dimension(40, 40));
-            
-            if (bookedSeats.contains(seatNumber)) {
-                seatButton.setEnabled(false);
-                seatButton.setBackground(Color.RED);
-            } else {
-                seatButton.addActionListener(e -> handleSeatSelection(seatButton));
-            }
-            
-            seatButtons.put(seatButton, new SeatInfo(seatNumber, section, venueId));
-            seatsPanel.add(seatButton);
+
+    // Runs on a background thread, see AsyncDataAccess
+    private Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> loadVenueSeats() {
+        Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> venueSeats = new LinkedHashMap<>();
+        for (MusicalDataHandler.VenueWithSections venue : dataHandler.getVenuesForMusical(musicalName)) {
+            venueSeats.put(venue, dataHandler.getSeatInventory()
+                .getVenueSeats(musicalId, venue, showDate, showTime));
         }
-        
-        sectionPanel.add(seatsPanel, BorderLayout.CENTER);
-        return sectionPanel;
-        
+        return venueSeats;
     }
-    
-    private void handleSeatSelection(JToggleButton seatButton) {
-        if (seatButton.isSelected()) {
-            if (selectedSeatsCount >= totalTickets) {
-                seatButton.setSelected(false);
-                JOptionPane.showMessageDialog(this, 
-                    "You can only select " + totalTickets + " seats.");
-                return;
-            }
-            selectedSeatsCount++;
-            seatButton.setBackground(Color.GREEN);
-        } else {
-            selectedSeatsCount--;
-            seatButton.setBackground(null);
+
+    private SeatMapComponent createSeatMap(
+            Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> venueSeats) {
+        SeatMapComponent map = new SeatMapComponent();
+        map.setMaxSelection(totalTickets);
+        for (Map.Entry<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> entry : venueSeats.entrySet()) {
+            map.addVenue(entry.getKey(), entry.getValue());
         }
-        selectionCountLabel.setText("Selected: " + selectedSeatsCount + "/" + totalTickets);
+        map.addChangeListener(e -> selectionCountLabel.setText(
+            "Selected: " + map.getSelectedCount() + "/" + totalTickets));
+        return map;
     }
     
     private JPanel createLegendPanel() {
@@ -139,48 +134,15 @@ public class SeatSelectionPanel extends JPanel {
     }
     
     public java.util.List<MusicalDataHandler.BookedSeat> getSelectedSeats() {
-        if (selectedSeatsCount != totalTickets) {
+        if (seatMap == null || seatMap.getSelectedCount() != totalTickets) {
             return null;
         }
-
-        java.util.List<MusicalDataHandler.BookedSeat> selectedSeats = new ArrayList<>();
-        for (Map.Entry<JToggleButton, SeatInfo> entry : seatButtons.entrySet()) {
-            if (entry.getKey().isSelected()) {
-                SeatInfo info = entry.getValue();
-                selectedSeats.add(new MusicalDataHandler.BookedSeat(
-                    info.seatNumber,
-                    info.section.getBasePrice(),
-                    info.venueId,
-                    info.section.getId()
-                ));
-            }
-        }
-        return selectedSeats;
-    }
-
-    
-    private static class SeatInfo {
-        final String seatNumber;
-        final MusicalDataHandler.VenueSection section;
-        final int venueId;
-        
-        SeatInfo(String seatNumber, MusicalDataHandler.VenueSection section, int venueId) {
-            this.seatNumber = seatNumber;
-            this.section = section;
-            this.venueId = venueId;
-        }
+        return seatMap.getSelectedSeats();
     }
     
     
     private void checkAndShowFullyBookedMessage() {
-        int totalAvailableSeats = 0;
-        for (Map.Entry<JToggleButton, SeatInfo> entry : seatButtons.entrySet()) {
-            if (entry.getKey().isEnabled()) {
-                totalAvailableSeats++;
-            }
-        }
-
-        if (totalAvailableSeats == 0) {
+        if (seatMap != null && seatMap.getFreeCount() == 0) {
             JPanel messagePanel = new JPanel();
             messagePanel.setBackground(new Color(255, 200, 200));
             JLabel messageLabel = new JLabel("This venue is fully booked for the selected date and time");
@@ -193,23 +155,20 @@ public class SeatSelectionPanel extends JPanel {
     }
     
     private void createMainPanel() {
-        JPanel mainPanel = new JPanel();
-        mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
+        JPanel mainPanel = new JPanel(new BorderLayout());
         
         // Get venues and sections for this musical
-        java.util.List<MusicalDataHandler.VenueWithSections> venues = dataHandler.getVenuesForMusical(musicalName);
+        Map<MusicalDataHandler.VenueWithSections, SeatInventory.VenueSeats> venueSeats = loadVenueSeats();
         boolean allVenuesBooked = true;
         
-        for (MusicalDataHandler.VenueWithSections venue : venues) {
-            JPanel venuePanel = createVenuePanel(venue);
-            mainPanel.add(venuePanel);
-            mainPanel.add(Box.createVerticalStrut(20));
-            
+        for (SeatInventory.VenueSeats seats : venueSeats.values()) {
             // Check if this venue has any available seats
-            if (!isVenueFullyBooked(venue)) {
+            if (seats.freeCount() > 0) {
                 allVenuesBooked = false;
             }
         }
+        seatMap = createSeatMap(venueSeats);
+        mainPanel.add(seatMap, BorderLayout.CENTER);
         
         // Add fully booked message if necessary
         if (allVenuesBooked) {
@@ -218,7 +177,7 @@ public class SeatSelectionPanel extends JPanel {
             messageLabel.setForeground(Color.RED);
             messageLabel.setFont(messageLabel.getFont().deriveFont(Font.BOLD));
             messagePanel.add(messageLabel);
-            mainPanel.add(messagePanel);
+            mainPanel.add(messagePanel, BorderLayout.SOUTH);
         }
         
         JScrollPane scrollPane = new JScrollPane(mainPanel);
@@ -226,15 +185,4 @@ public class SeatSelectionPanel extends JPanel {
         add(scrollPane, BorderLayout.CENTER);
     }
     
-    private boolean isVenueFullyBooked(MusicalDataHandler.VenueWithSections venue) {
-        int totalSeats = venue.getSections().stream()
-            .mapToInt(MusicalDataHandler.VenueSection::getCapacity)
-            .sum();
-            
-        java.util.List<String> bookedSeats = dataHandler.getBookedSeats(
-            musicalName, venue.getId(), 0, showDate, showTime);
-            
-        return bookedSeats.size() >= totalSeats;
-    }
-    
 }
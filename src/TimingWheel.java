@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel for large numbers of short-lived timeouts.
+ * Scheduling and cancelling are O(1) and lock-free; a single daemon thread advances
+ * the wheel once per tick and runs expired tasks, so expiry callbacks must be short.
+ *
+ * Each level has 64 slots. Level 0 slots are one tick wide, level 1 slots are 64 ticks,
+ * and so on. A timeout sits in the lowest level whose current rotation contains its
+ * deadline and cascades down a level each time that slot comes round.
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final List<Timeout>[][] wheels;
+    private final List<Timeout> overflow = new ArrayList<>();
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final Thread worker;
+    private volatile boolean stopped = false;
+
+    // Only touched by the worker thread
+    private long currentTick = 0;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(String name, long tickDuration, TimeUnit unit) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.wheels = new List[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new ArrayList<>();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+        long deadlineNanos = System.nanoTime() - startNanos + unit.toNanos(delay);
+        // Round up so a timeout never fires early
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(task, deadlineTick);
+        activeCount.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    // Number of timeouts that have neither fired nor been cancelled
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+            // Catch up tick by tick if we fell behind (e.g. after a GC pause)
+            while (currentTick < targetTick) {
+                currentTick++;
+                drainPending();
+                advance();
+            }
+            drainPending();
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            LockSupport.parkNanos(this, nextTickNanos - System.nanoTime());
+        }
+    }
+
+    private void drainPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            place(timeout);
+        }
+    }
+
+    private void place(Timeout timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+        long deadline = timeout.deadlineTick;
+        if (deadline <= currentTick) {
+            expire(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if ((deadline >>> shift) == (currentTick >>> shift)) {
+                int slot = (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+                wheels[level][slot].add(timeout);
+                return;
+            }
+        }
+        overflow.add(timeout);
+    }
+
+    private void advance() {
+        // Cascade from the top level down so timeouts can fall through several levels in one tick
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                if (level == LEVELS - 1 && (currentTick & ((1L << (shift + SLOT_BITS)) - 1)) == 0) {
+                    cascade(overflow);
+                }
+                cascade(wheels[level][(int) (currentTick >>> shift) & SLOT_MASK]);
+            }
+        }
+
+        List<Timeout> due = wheels[0][(int) currentTick & SLOT_MASK];
+        for (Timeout timeout : due) {
+            expire(timeout);
+        }
+        due.clear();
+    }
+
+    private void cascade(List<Timeout> slot) {
+        if (slot.isEmpty()) return;
+        List<Timeout> timeouts = new ArrayList<>(slot);
+        slot.clear();
+        for (Timeout timeout : timeouts) {
+            place(timeout);
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+            activeCount.decrementAndGet();
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public class Timeout {
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Returns false if the task has already run or was cancelled before
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                // Left in its slot and dropped when the wheel reaches it
+                activeCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() { return state.get() == CANCELLED; }
+        public boolean isExpired() { return state.get() == EXPIRED; }
+    }
+}
@@ -0,0 +1,198 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.*;
+
+/**
+ * Read-only seating layout for the admin venue screen. Each section's seat grid is
+ * rendered in tiles of TILE_ROWS rows into cached images keyed by section id and
+ * capacity, and paint just blits the tiles inside the clip. Tiles are only rendered
+ * when first scrolled into view and stay valid until the venue's sections change.
+ */
+public class VenueLayoutComponent extends JComponent implements Scrollable {
+
+    private static final int COLUMNS = 25;
+    private static final int CELL = 12;
+    private static final int SEAT = 10;
+    private static final int TILE_ROWS = 40;
+    private static final int MARGIN = 10;
+    private static final int TITLE_HEIGHT = 20;
+    private static final int INFO_HEIGHT = 20;
+    private static final int SECTION_GAP = 10;
+    // About 14MB of tiles at the 565 pixel format
+    private static final int MAX_CACHED_TILES = 48;
+
+    private static final Color SEAT_COLOR = Color.BLUE;
+
+    private final Map<TileKey, BufferedImage> tileCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileKey, BufferedImage> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+    private final List<Block> blocks = new ArrayList<>();
+    private int height = MARGIN;
+
+    public VenueLayoutComponent() {
+        setOpaque(true);
+        setFont(UIManager.getFont("Label.font"));
+    }
+
+    public void setSections(List<MusicalDataHandler.VenueSection> sections) {
+        blocks.clear();
+        height = MARGIN;
+        for (MusicalDataHandler.VenueSection section : sections) {
+            Block block = new Block(section);
+            block.gridY = height + TITLE_HEIGHT;
+            height = block.gridY + block.rows * CELL + INFO_HEIGHT + SECTION_GAP;
+            blocks.add(block);
+        }
+        revalidate();
+        repaint();
+    }
+
+    // Drops the cached tiles of these sections, call after sections are added, resized or deleted
+    public void invalidateSections(Collection<Integer> sectionIds) {
+        tileCache.keySet().removeIf(key -> sectionIds.contains(key.sectionId));
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int clipBottom = clip.y + clip.height;
+        FontMetrics metrics = g.getFontMetrics();
+        for (Block block : blocks) {
+            int top = block.gridY - TITLE_HEIGHT;
+            int bottom = block.gridY + block.rows * CELL + INFO_HEIGHT;
+            if (bottom < clip.y) continue;
+            if (top >= clipBottom) break;
+
+            MusicalDataHandler.VenueSection section = block.section;
+            g.setColor(getForeground());
+            g.drawString(section.getName(), MARGIN, top + metrics.getAscent() + 2);
+
+            int tiles = (block.rows + TILE_ROWS - 1) / TILE_ROWS;
+            int tileHeight = TILE_ROWS * CELL;
+            int firstTile = Math.max(0, (clip.y - block.gridY) / tileHeight);
+            int lastTile = Math.min(tiles - 1, (clipBottom - block.gridY) / tileHeight);
+            for (int tile = firstTile; tile <= lastTile; tile++) {
+                g.drawImage(tileImage(section, tile), MARGIN, block.gridY + tile * tileHeight, null);
+            }
+
+            g.setColor(getForeground());
+            g.drawString(String.format("Capacity: %d | Base Price: £%.2f",
+                section.getCapacity(), section.getBasePrice()),
+                MARGIN, block.gridY + block.rows * CELL + metrics.getAscent() + 4);
+        }
+    }
+
+    private BufferedImage tileImage(MusicalDataHandler.VenueSection section, int tile) {
+        TileKey key = new TileKey(section.getId(), section.getCapacity(), tile);
+        BufferedImage image = tileCache.get(key);
+        if (image == null) {
+            image = renderTile(section.getCapacity(), tile);
+            tileCache.put(key, image);
+        }
+        return image;
+    }
+
+    private BufferedImage renderTile(int capacity, int tile) {
+        int firstSeat = tile * TILE_ROWS * COLUMNS;
+        int seats = Math.min(capacity - firstSeat, TILE_ROWS * COLUMNS);
+        int rows = (seats + COLUMNS - 1) / COLUMNS;
+
+        BufferedImage image = new BufferedImage(COLUMNS * CELL, rows * CELL, BufferedImage.TYPE_USHORT_565_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(SEAT_COLOR);
+        for (int i = 0; i < seats; i++) {
+            g.fillRect((i % COLUMNS) * CELL, (i / COLUMNS) * CELL, SEAT, SEAT);
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(MARGIN * 2 + COLUMNS * CELL, height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return CELL * 2;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL
+            ? Math.max(CELL, visibleRect.height - CELL)
+            : Math.max(CELL, visibleRect.width - CELL);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        // Fill the viewport when it is wider than the layout
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > getPreferredSize().height;
+    }
+
+    private static class Block {
+        final MusicalDataHandler.VenueSection section;
+        final int rows;
+        int gridY;
+
+        Block(MusicalDataHandler.VenueSection section) {
+            this.section = section;
+            this.rows = (section.getCapacity() + COLUMNS - 1) / COLUMNS;
+        }
+    }
+
+    private static final class TileKey {
+        final int sectionId;
+        final int capacity;
+        final int tile;
+
+        TileKey(int sectionId, int capacity, int tile) {
+            this.sectionId = sectionId;
+            this.capacity = capacity;
+            this.tile = tile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return sectionId == other.sectionId && capacity == other.capacity && tile == other.tile;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sectionId, capacity, tile);
+        }
+    }
+}
@@ -2,7 +2,10 @@ import java.sql.*;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 //import javax.swing.table.DefaultTableModel;
 //import javax.swing.table.TableColumn;
 
@@ -12,6 +15,9 @@ public class VenueManagementPanel extends JPanel {
     private JTable venueTable;
     private DefaultTableModel tableModel;
     private JPanel seatLayoutPanel;
+    private VenueLayoutComponent layoutView;
+    // Sections per venue id, so switching between venues does not hit the database
+    private final Map<Integer, List<MusicalDataHandler.VenueSection>> sectionsByVenue = new HashMap<>();
     
     public VenueManagementPanel(MusicalDataHandler dataHandler) {
         this.dataHandler = dataHandler;
@@ -51,17 +57,15 @@ public class VenueManagementPanel extends JPanel {
         // Seat layout visualization with scroll capability
         seatLayoutPanel = new JPanel();
         seatLayoutPanel.setLayout(new BorderLayout());
-        JPanel layoutContent = new JPanel();
-        layoutContent.setLayout(new BoxLayout(layoutContent, BoxLayout.Y_AXIS));
+        layoutView = new VenueLayoutComponent();
 
-        JScrollPane layoutScroll = new JScrollPane(layoutContent);
+        JScrollPane layoutScroll = new JScrollPane(layoutView);
         layoutScroll.setBorder(BorderFactory.createTitledBorder("Seating Layout"));
-        layoutScroll.getVerticalScrollBar().setUnitIncrement(16);
         seatLayoutPanel.add(layoutScroll, BorderLayout.CENTER);
 
         venueTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                updateSeatLayout(layoutContent);
+                updateSeatLayout();
             }
         });
 
@@ -72,25 +76,26 @@ public class VenueManagementPanel extends JPanel {
         add(splitPane, BorderLayout.CENTER);
     }
 
-    private void updateSeatLayout(JPanel layoutContent) {
+    private void updateSeatLayout() {
         int selectedRow = venueTable.getSelectedRow();
         if (selectedRow == -1) return;
 
         int venueId = (int)venueTable.getValueAt(selectedRow, 0);
-        layoutContent.removeAll();
-
-        // Get sections and create visual representation
-        List<MusicalDataHandler.VenueSection> sections = dataHandler.getVenueSections(venueId);
+        layoutView.setSections(sectionsByVenue.computeIfAbsent(venueId, dataHandler::getVenueSections));
+    }
 
-        for (MusicalDataHandler.VenueSection section : sections) {
-            JPanel sectionPanel = createSectionPanel(section);
-            sectionPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, sectionPanel.getPreferredSize().height));
-            layoutContent.add(sectionPanel);
-            layoutContent.add(Box.createVerticalStrut(10));
+    // Forget the venue's sections and their rendered tiles, then redraw if it is on screen
+    private void sectionsChanged(int venueId) {
+        dataHandler.getSeatInventory().invalidateVenue(venueId);
+        List<MusicalDataHandler.VenueSection> stale = sectionsByVenue.remove(venueId);
+        if (stale != null) {
+            List<Integer> sectionIds = new ArrayList<>();
+            for (MusicalDataHandler.VenueSection section : stale) {
+                sectionIds.add(section.getId());
+            }
+            layoutView.invalidateSections(sectionIds);
         }
-
-        layoutContent.revalidate();
-        layoutContent.repaint();
+        updateSeatLayout();
     }
 
     
@@ -241,11 +246,15 @@ public class VenueManagementPanel extends JPanel {
     dialog.setSize(600, 400);
     dialog.setLocationRelativeTo(this);
     dialog.setVisible(true);
+
+    // Sections may have been added or deleted while the dialog was open
+    sectionsChanged(venueId);
 }
 
+@SuppressWarnings("try")
 private int calculateUsedCapacity(int venueId) {
-    try (Connection conn = DriverManager.getConnection(
-            dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+    try (QueryMetrics.Timer timer = QueryMetrics.time("calculateUsedCapacity");
+         Connection conn = MusicalDataHandler.getConnection()) {
         String query = "SELECT COALESCE(SUM(capacity), 0) as total FROM sections WHERE venue_id = ?";
         PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setInt(1, venueId);
@@ -254,16 +263,18 @@ private int calculateUsedCapacity(int venueId) {
             return rs.getInt("total");
         }
     } catch (SQLException e) {
+        QueryMetrics.recordError("calculateUsedCapacity");
         e.printStackTrace();
     }
     return 0;
 }
 
 
+@SuppressWarnings("try")
 private int calculateRemainingCapacity(int venueId, int totalCapacity) {
     int usedCapacity = 0;
-    try (Connection conn = DriverManager.getConnection(
-            dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+    try (QueryMetrics.Timer timer = QueryMetrics.time("calculateRemainingCapacity");
+         Connection conn = MusicalDataHandler.getConnection()) {
         String query = "SELECT SUM(capacity) as total FROM sections WHERE venue_id = ?";
         PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setInt(1, venueId);
@@ -273,64 +284,18 @@ private int calculateRemainingCapacity(int venueId, int totalCapacity) {
             usedCapacity = rs.getInt("total");
         }
     } catch (SQLException e) {
+        QueryMetrics.recordError("calculateRemainingCapacity");
         e.printStackTrace();
     }
     return totalCapacity - usedCapacity;
 }
 
     
-    private void updateSeatLayout() {
-        int selectedRow = venueTable.getSelectedRow();
-        if (selectedRow == -1) return;
-        
-        int venueId = (int)venueTable.getValueAt(selectedRow, 0);
-        seatLayoutPanel.removeAll();
-        seatLayoutPanel.setLayout(new GridBagLayout());
-        
-        // Get sections and create visual representation
-        List<MusicalDataHandler.VenueSection> sections = dataHandler.getVenueSections(venueId);
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(5, 5, 5, 5);
-        
-        int row = 0;
-        for (MusicalDataHandler.VenueSection section : sections) {
-            JPanel sectionPanel = createSectionPanel(section);
-            gbc.gridx = 0;
-            gbc.gridy = row++;
-            gbc.fill = GridBagConstraints.HORIZONTAL;
-            seatLayoutPanel.add(sectionPanel, gbc);
-        }
-        
-        seatLayoutPanel.revalidate();
-        seatLayoutPanel.repaint();
-    }
-    
-    private JPanel createSectionPanel(MusicalDataHandler.VenueSection section) {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder(section.getName()));
-        
-        // Create visual representation of seats
-        JPanel seatsPanel = new JPanel(new GridLayout(0, 10, 2, 2));
-        for (int i = 0; i < section.getCapacity(); i++) {
-            JLabel seat = new JLabel("■");
-            seat.setForeground(Color.BLUE);
-            seat.setHorizontalAlignment(SwingConstants.CENTER);
-            seatsPanel.add(seat);
-        }
-        
-        JLabel infoLabel = new JLabel(String.format("Capacity: %d | Base Price: £%.2f", 
-            section.getCapacity(), section.getBasePrice()));
-        
-        panel.add(seatsPanel, BorderLayout.CENTER);
-        panel.add(infoLabel, BorderLayout.SOUTH);
-        
-        return panel;
-    }
-    
+    @SuppressWarnings("try")
     private void refreshVenueTable() {
         tableModel.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
+        try (QueryMetrics.Timer timer = QueryMetrics.time("refreshVenueTable");
+             Connection conn = MusicalDataHandler.getConnection()) {
             String query = "SELECT v.*, " +
                           "(SELECT COUNT(*) FROM sections WHERE venue_id = v.id) as section_count " +
                           "FROM venues v";
@@ -346,6 +311,7 @@ private int calculateRemainingCapacity(int venueId, int totalCapacity) {
                 });
             }
         } catch (SQLException e) {
+            QueryMetrics.recordError("refreshVenueTable");
             e.printStackTrace();
         }
     }
@@ -407,25 +373,26 @@ private int calculateRemainingCapacity(int venueId, int totalCapacity) {
     }
 
 
+    @SuppressWarnings("try")
     private void refreshSectionTable(DefaultTableModel model, int venueId) {
         model.setRowCount(0);
         int totalSectionCapacity = 0;
 
-        try (Connection conn = DriverManager.getConnection(
-                dataHandler.DB_URL, dataHandler.USER, dataHandler.PASS)) {
-            String query = "SELECT * FROM sections WHERE venue_id = ?";
-            PreparedStatement pstmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = QueryMetrics.time("refreshSectionTable");
+             Connection conn = MusicalDataHandler.getConnection()) {
+            PreparedStatement pstmt = MusicalDataHandler.prepare(conn, NamedStatement.SECTIONS_BY_VENUE);
             pstmt.setInt(1, venueId);
-            ResultSet rs = pstmt.executeQuery();
 
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("capacity"),
-                    rs.getDouble("base_price")
-                });
-                totalSectionCapacity += rs.getInt("capacity");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    model.addRow(new Object[]{
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getInt("capacity"),
+                        rs.getDouble("base_price")
+                    });
+                    totalSectionCapacity += rs.getInt("capacity");
+                }
             }
 
             // Update the sections count in venues table
@@ -436,6 +403,7 @@ private int calculateRemainingCapacity(int venueId, int totalCapacity) {
             updateStmt.executeUpdate();
 
         } catch (SQLException e) {
+            QueryMetrics.recordError("refreshSectionTable");
             e.printStackTrace();
         }
         refreshVenueTable();